@@ -0,0 +1,321 @@
+package net.sonic.loadgen;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load generator for a running GSLS node.
+ *
+ * Creates key pairs, POSTs signed SocialRecords and then issues a GET/PUT/404 mix at a fixed
+ * arrival rate. Requests are scheduled independently of the responses, and latency is measured
+ * from the intended start time, so queueing in the server or in the client does not hide
+ * behind a slowed down request rate (coordinated omission).
+ *
+ * @version 1
+ */
+public class LoadGenerator
+{
+	private static final long HISTOGRAM_MAX = TimeUnit.MINUTES.toNanos(5);
+	
+	private final String url;
+	private final int timeout;
+	
+	private final List<String> gids = new ArrayList<String>();
+	private final List<String> updates = new ArrayList<String>();
+	
+	public LoadGenerator(String url, int timeout)
+	{
+		this.url = url.endsWith("/") ? url : url + "/";
+		this.timeout = timeout;
+	}
+	
+	/**
+	 * creates and POSTs the SocialRecords used by the load phase. Every record also gets a
+	 * pre-signed newer version, so PUTs don't pay for RSA signing at request time.
+	 */
+	public void setup(RecordFactory factory, int records) throws Exception
+	{
+		Operation post = new Operation("POST");
+		
+		for(int i=0; i<records; i++)
+		{
+			JSONObject socialRecord = factory.createSocialRecord(i);
+			String gid = socialRecord.getString("globalID");
+			String jwt = factory.sign(socialRecord, i);
+			
+			long start = System.nanoTime();
+			int status = request("POST", gid, jwt);
+			post.record(start, start, System.nanoTime(), status == 200);
+			
+			if(status != 200)
+				System.err.println("POST /" + gid + " failed with status " + status);
+			
+			socialRecord.put("displayName", socialRecord.getString("displayName") + " (updated)");
+			
+			gids.add(gid);
+			updates.add(factory.sign(socialRecord, i));
+		}
+		
+		System.out.println("setup: " + records + " SocialRecords posted");
+		post.print();
+	}
+	
+	/**
+	 * issues requests at the given arrival rate for the given duration
+	 *
+	 * @param rate requests per second
+	 * @param duration seconds
+	 * @param getShare share of GETs for existing records
+	 * @param putShare share of PUTs. the remainder are GETs for unknown GlobalIDs
+	 * @param concurrency number of worker threads issuing requests
+	 */
+	public List<Operation> run(RecordFactory factory, double rate, int duration, double getShare, double putShare, int concurrency) throws InterruptedException
+	{
+		final Operation get = new Operation("GET");
+		final Operation put = new Operation("PUT");
+		final Operation notFound = new Operation("GET 404");
+		
+		ThreadPoolExecutor workers = (ThreadPoolExecutor) Executors.newFixedThreadPool(concurrency);
+		
+		long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+		long requests = (long) (rate * duration);
+		long start = System.nanoTime();
+		
+		for(long i=0; i<requests; i++)
+		{
+			final long intended = start + i * interval;
+			
+			long now;
+			while((now = System.nanoTime()) < intended)
+				LockSupport.parkNanos(intended - now);
+			
+			double dice = ThreadLocalRandom.current().nextDouble();
+			
+			if(dice < getShare)
+			{
+				final String gid = gids.get(ThreadLocalRandom.current().nextInt(gids.size()));
+				workers.execute(() -> get.execute(intended, () -> request("GET", gid, null) == 200));
+			}
+			else if(dice < getShare + putShare)
+			{
+				final int record = ThreadLocalRandom.current().nextInt(gids.size());
+				workers.execute(() -> put.execute(intended, () -> request("PUT", gids.get(record), updates.get(record)) == 200));
+			}
+			else
+			{
+				final String gid = factory.randomGID();
+				workers.execute(() -> notFound.execute(intended, () -> request("GET", gid, null) == 404));
+			}
+		}
+		
+		long dispatched = System.nanoTime();
+		workers.shutdown();
+		
+		// above capacity, requests are still queued when the last one is dispatched. the histograms
+		// are only complete once all of them finished, each is bounded by the request timeout
+		while(!workers.awaitTermination(timeout, TimeUnit.MILLISECONDS))
+			System.out.println("load: waiting for " + (workers.getQueue().size() + workers.getActiveCount()) + " outstanding requests");
+		
+		// latencies are measured from the intended start, so the arrival rate is the intended one
+		System.out.println(String.format("load: %d requests at an arrival rate of %.1f/s over %ds, last one completed %.1fs after the last arrival",
+				requests, rate, duration, (System.nanoTime() - dispatched) / 1e9));
+		
+		List<Operation> operations = new ArrayList<Operation>();
+		operations.add(get);
+		operations.add(put);
+		operations.add(notFound);
+		return operations;
+	}
+	
+	private int request(String method, String gid, String body) throws IOException
+	{
+		HttpURLConnection connection = (HttpURLConnection) new URL(url + gid).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		
+		if(body != null)
+		{
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "text/plain");
+			
+			try (OutputStream out = connection.getOutputStream())
+			{
+				out.write(body.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		
+		int status = connection.getResponseCode();
+		
+		// drain the response so the connection can be reused by the keep-alive cache
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream())
+		{
+			if(in != null)
+			{
+				byte[] buffer = new byte[8192];
+				while(in.read(buffer) != -1);
+			}
+		}
+		
+		return status;
+	}
+	
+	private interface Request
+	{
+		boolean send() throws IOException;
+	}
+	
+	/**
+	 * latency statistics of one request type
+	 */
+	public static class Operation
+	{
+		private final String name;
+		private final Histogram corrected = new ConcurrentHistogram(HISTOGRAM_MAX, 3);
+		private final Histogram uncorrected = new ConcurrentHistogram(HISTOGRAM_MAX, 3);
+		private final AtomicLong errors = new AtomicLong(0);
+		
+		public Operation(String name)
+		{
+			this.name = name;
+		}
+		
+		private void execute(long intended, Request request)
+		{
+			long start = System.nanoTime();
+			boolean success;
+			
+			try
+			{
+				success = request.send();
+			}
+			catch (IOException e)
+			{
+				success = false;
+			}
+			
+			record(intended, start, System.nanoTime(), success);
+		}
+		
+		private void record(long intended, long start, long end, boolean success)
+		{
+			corrected.recordValue(Math.min(end - intended, HISTOGRAM_MAX));
+			uncorrected.recordValue(Math.min(end - start, HISTOGRAM_MAX));
+			
+			if(!success)
+				errors.incrementAndGet();
+		}
+		
+		public void print()
+		{
+			System.out.println(String.format("%-8s n=%d errors=%d", name, corrected.getTotalCount(), errors.get()));
+			System.out.println("  from intended start (corrected): " + summary(corrected));
+			System.out.println("  from actual start (service time): " + summary(uncorrected));
+		}
+		
+		public void printDistribution()
+		{
+			System.out.println(name + " latency distribution from intended start, in ms:");
+			corrected.outputPercentileDistribution(System.out, 1e6);
+		}
+		
+		private static String summary(Histogram histogram)
+		{
+			if(histogram.getTotalCount() == 0)
+				return "-";
+			
+			return String.format("p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+					histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(90) / 1e6,
+					histogram.getValueAtPercentile(99) / 1e6, histogram.getValueAtPercentile(99.9) / 1e6,
+					histogram.getMaxValue() / 1e6);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception
+	{
+		Options options = new Options();
+		
+		options.addOption(Option.builder("u").longOpt("url").hasArg().desc("base URL of the GSLS node [http://localhost:4002/]").build());
+		options.addOption(Option.builder("n").longOpt("records").hasArg().desc("number of SocialRecords to POST [100]").build());
+		options.addOption(Option.builder("k").longOpt("key_pairs").hasArg().desc("number of distinct key pairs [4]").build());
+		options.addOption(Option.builder("s").longOpt("key_size").hasArg().desc("RSA key size [4096]").build());
+		options.addOption(Option.builder("w").longOpt("key_workers").hasArg().desc("threads generating the key pairs [number of cores]").build());
+		options.addOption(Option.builder("r").longOpt("rate").hasArg().desc("arrival rate in requests per second [100]").build());
+		options.addOption(Option.builder("d").longOpt("duration").hasArg().desc("duration of the load phase in seconds [60]").build());
+		options.addOption(Option.builder("m").longOpt("mix").hasArg().desc("GET:PUT:404 ratio [90:5:5]").build());
+		options.addOption(Option.builder("c").longOpt("concurrency").hasArg().desc("worker threads issuing requests [64]").build());
+		options.addOption(Option.builder("t").longOpt("timeout").hasArg().desc("connect and read timeout in ms [10000]").build());
+		options.addOption(Option.builder("v").longOpt("verbose").desc("prints the full latency distributions").build());
+		options.addOption(Option.builder("h").longOpt("help").desc("displays help on cli parameters").build());
+		
+		CommandLine cmd;
+		
+		try
+		{
+			cmd = new DefaultParser().parse(options, args);
+		}
+		catch (ParseException e)
+		{
+			System.out.println("Wrong parameter. Error: " + e.getMessage());
+			new HelpFormatter().printHelp("gsls-loadgen", options);
+			return;
+		}
+		
+		if(cmd.hasOption("h"))
+		{
+			new HelpFormatter().printHelp("gsls-loadgen", options);
+			return;
+		}
+		
+		String[] mix = cmd.getOptionValue("m", "90:5:5").split(":");
+		double get = Double.parseDouble(mix[0]);
+		double put = Double.parseDouble(mix[1]);
+		double total = get + put + Double.parseDouble(mix[2]);
+		
+		RecordFactory factory = new RecordFactory(
+				Integer.parseInt(cmd.getOptionValue("k", "4")),
+				Integer.parseInt(cmd.getOptionValue("s", "4096")),
+				Integer.parseInt(cmd.getOptionValue("w", String.valueOf(Runtime.getRuntime().availableProcessors()))));
+		
+		LoadGenerator generator = new LoadGenerator(
+				cmd.getOptionValue("u", "http://localhost:4002/"),
+				Integer.parseInt(cmd.getOptionValue("t", "10000")));
+		
+		generator.setup(factory, Integer.parseInt(cmd.getOptionValue("n", "100")));
+		
+		List<Operation> operations = generator.run(factory,
+				Double.parseDouble(cmd.getOptionValue("r", "100")),
+				Integer.parseInt(cmd.getOptionValue("d", "60")),
+				get / total, put / total,
+				Integer.parseInt(cmd.getOptionValue("c", "64")));
+		
+		for(Operation operation : operations)
+		{
+			operation.print();
+			if(cmd.hasOption("v"))
+				operation.printDistribution();
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package net.sonic.loadgen;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Creates key pairs and signed SocialRecord JWTs in the format accepted by GSLS, without
+ * depending on the server code.
+ *
+ * @version 1
+ */
+public class RecordFactory
+{
+	private static final int GID_ITERATIONS = 10000;
+	private static final int GID_LENGTH = 256;
+	
+	private final KeyPair[] keyPairs;
+	private final SecureRandom random = new SecureRandom();
+	
+	/**
+	 * generates the key pairs on worker threads, like the server's KeyPairPool. Large RSA keys take
+	 * seconds each, so generating them one after another delays the start of the run
+	 *
+	 * @param keyPairCount number of distinct key pairs
+	 * @param keySize RSA key size
+	 * @param workers number of generator threads
+	 */
+	public RecordFactory(int keyPairCount, int keySize, int workers) throws GeneralSecurityException, InterruptedException
+	{
+		List<Callable<KeyPair>> tasks = new ArrayList<Callable<KeyPair>>();
+		for(int i=0; i<keyPairCount; i++)
+		{
+			tasks.add(() ->
+			{
+				KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+				keyPairGenerator.initialize(keySize);
+				return keyPairGenerator.genKeyPair();
+			});
+		}
+		
+		ExecutorService generators = Executors.newFixedThreadPool(Math.max(1, workers));
+		
+		try
+		{
+			List<Future<KeyPair>> futures = generators.invokeAll(tasks);
+			
+			keyPairs = new KeyPair[keyPairCount];
+			for(int i=0; i<keyPairCount; i++)
+				keyPairs[i] = futures.get(i).get();
+		}
+		catch (ExecutionException e)
+		{
+			throw new GeneralSecurityException(e.getCause());
+		}
+		finally
+		{
+			generators.shutdownNow();
+		}
+	}
+	
+	/**
+	 * creates an unsigned SocialRecord with a random salt and the matching GlobalID
+	 *
+	 * @param index selects the key pair and the display name
+	 * @return JSONObject
+	 */
+	public JSONObject createSocialRecord(int index) throws GeneralSecurityException
+	{
+		String publicKey = encodePublicKey(keyPairs[index % keyPairs.length]);
+		String salt = randomHex(8);
+		
+		JSONObject json = new JSONObject();
+		
+		json.put("@context", "http://sonic-project.net/");
+		json.put("@type", "socialrecord");
+		json.put("type", "user");
+		json.put("globalID", createGID(publicKey, salt));
+		json.put("platformGID", createGID(publicKey, "loadgen-platform"));
+		json.put("displayName", "loadgen " + index);
+		json.put("profileLocation", "http://loadgen.invalid/" + index);
+		json.put("datetime", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(new Date()));
+		json.put("accountPublicKey", publicKey);
+		json.put("personalPublicKey", publicKey);
+		json.put("active", 1);
+		json.put("salt", salt);
+		json.put("keyRevocationList", new JSONArray());
+		
+		return json;
+	}
+	
+	/**
+	 * signs the SocialRecord with the private key of the record's key pair
+	 *
+	 * @param socialRecord
+	 * @param index the index the record was created with
+	 * @return the JWT
+	 */
+	public String sign(JSONObject socialRecord, int index)
+	{
+		String encoded = Base64.getUrlEncoder().withoutPadding().encodeToString(socialRecord.toString().getBytes(StandardCharsets.UTF_8));
+		
+		return Jwts.builder()
+				.setHeaderParam("typ", "JWT")
+				.claim("socialRecord", encoded)
+				.signWith(SignatureAlgorithm.RS512, keyPairs[index % keyPairs.length].getPrivate())
+				.compact();
+	}
+	
+	/**
+	 * returns a random GlobalID that is not stored in the DHT
+	 *
+	 * @return String
+	 */
+	public String randomGID()
+	{
+		byte[] bytes = new byte[GID_LENGTH / 8];
+		random.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+	
+	/**
+	 * same derivation as net.sonic.gsls.model.GID: PBKDF2 with HMAC-SHA256 over the PEM key
+	 */
+	private static String createGID(String publicKey, String salt) throws GeneralSecurityException
+	{
+		PBEKeySpec spec = new PBEKeySpec(publicKey.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), GID_ITERATIONS, GID_LENGTH);
+		byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+		
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+	}
+	
+	private static String encodePublicKey(KeyPair keyPair)
+	{
+		return "-----BEGIN PUBLIC KEY-----" + Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()) + "-----END PUBLIC KEY-----";
+	}
+	
+	private String randomHex(int length)
+	{
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		
+		StringBuilder hex = new StringBuilder();
+		for(byte b : bytes)
+			hex.append(String.format("%02x", b));
+		
+		return hex.toString();
+	}
+}
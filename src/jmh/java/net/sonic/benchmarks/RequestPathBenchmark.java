@@ -0,0 +1,109 @@
+package net.sonic.benchmarks;
+
+import io.jsonwebtoken.impl.Base64UrlCodec;
+import net.sonic.gsls.model.GID;
+import net.sonic.gsls.model.SocialRecord;
+import net.sonic.gsls.model.SocialRecordIntegrityException;
+import net.sonic.gsls.util.KeyPairManager;
+import net.sonic.gsls.util.XSDDateTime;
+import net.sonic.tests.SocialRecordFixtures;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.PublicKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the stages every GET/POST/PUT request runs through.
+ *
+ * Run with
+ * mvn -P benchmark test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestPathBenchmark
+{
+	private String jwt;
+	private JSONObject data;
+	private SocialRecord socialRecord;
+	private String personalPublicKey;
+	private PublicKey publicKey;
+	private String salt;
+	private String datetime;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		SocialRecordFixtures fixtures = new SocialRecordFixtures(1);
+		
+		jwt = fixtures.createSignedSocialRecord(0);
+		
+		JSONObject jwtPayload = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[1]));
+		data = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwtPayload.get("socialRecord").toString()));
+		
+		socialRecord = SocialRecord.createFromJSONObject(data);
+		personalPublicKey = data.getString("personalPublicKey");
+		publicKey = KeyPairManager.decodePublicKey(personalPublicKey);
+		salt = data.getString("salt");
+		datetime = data.getString("datetime");
+	}
+	
+	@Benchmark
+	public JSONObject decodeJWTPayload()
+	{
+		JSONObject jwtPayload = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[1]));
+		return new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwtPayload.get("socialRecord").toString()));
+	}
+	
+	@Benchmark
+	public SocialRecord createFromJSONObject()
+	{
+		return SocialRecord.createFromJSONObject(data);
+	}
+	
+	@Benchmark
+	public boolean validate() throws SocialRecordIntegrityException
+	{
+		return socialRecord.validate();
+	}
+	
+	@Benchmark
+	public boolean validateXSDDateTime()
+	{
+		return XSDDateTime.validateXSDDateTime(datetime);
+	}
+	
+	@Benchmark
+	public PublicKey decodePublicKey() throws Exception
+	{
+		return KeyPairManager.decodePublicKey(personalPublicKey);
+	}
+	
+	// the same check the request path runs, including the algorithm and key type matching
+	@Benchmark
+	public void verifySignature()
+	{
+		KeyPairManager.verifyJWT(jwt, publicKey);
+	}
+	
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public String createGID()
+	{
+		return GID.createGID(personalPublicKey, salt);
+	}
+}
@@ -1,11 +1,19 @@
 package net.sonic.gsls;
 
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import net.sonic.gsls.config.Config;
 import net.sonic.gsls.controller.DHTManager;
+import net.sonic.gsls.controller.OverlayHealthMonitor;
+import net.sonic.gsls.controller.RateLimits;
+import net.sonic.gsls.controller.RecordCache;
+import net.sonic.gsls.controller.WarmUp;
+import net.sonic.gsls.util.KeyPairManager;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -71,11 +79,81 @@ public class GSLSServer implements Daemon
 				.hasArg()
 				.build();
 		
+		Option logModeOption = Option.builder("m")
+				.longOpt("log_mode")
+				.desc("sets the request log mode, sync or async [" + config.getRequestLogMode() + "]")
+				.hasArg()
+				.build();
+		
+		Option logSampleRateOption = Option.builder("s")
+				.longOpt("log_sample_rate")
+				.desc("sets the share of successful requests logged in async mode [" + config.getRequestLogSampleRate() + "]")
+				.hasArg()
+				.build();
+		
+		Option diskCachePathOption = Option.builder("d")
+				.longOpt("disk_cache_path")
+				.desc("sets the directory for the disk tier of the record cache [" + config.getDiskCachePath() + "]")
+				.hasArg()
+				.build();
+		
+		Option diskCacheSizeOption = Option.builder()
+				.longOpt("disk_cache_size")
+				.desc("sets the size of the disk tier of the record cache in megabytes, 0 disables it [" + config.getDiskCacheSize() / (1024 * 1024) + "]")
+				.hasArg()
+				.build();
+		
+		Option warmUpFileOption = Option.builder("w")
+				.longOpt("warm_up_file")
+				.desc("sets the hot key list the record cache is warmed up from at startup, e.g. cache/hot-keys.txt. Off if not set [" + (config.getWarmUpFile() != null ? config.getWarmUpFile() : "off") + "]")
+				.hasArg()
+				.build();
+		
+		Option rateLimitOption = Option.builder("r")
+				.longOpt("rate_limit")
+				.desc("enables the per-address and per-platform rate limits, on or off [" + (config.getRateLimitEnabled() ? "on" : "off") + "]")
+				.hasArg()
+				.build();
+		
+		Option rateLimitReadOption = Option.builder()
+				.longOpt("rate_limit_read")
+				.desc("sets the read requests per second allowed per address [" + config.getRateLimitReadRate() + "]")
+				.hasArg()
+				.build();
+		
+		Option rateLimitWriteOption = Option.builder()
+				.longOpt("rate_limit_write")
+				.desc("sets the write requests per second allowed per address [" + config.getRateLimitWriteRate() + "]")
+				.hasArg()
+				.build();
+		
+		Option keyPairPoolOption = Option.builder()
+				.longOpt("keypair_pool")
+				.desc("sets the number of key pairs generated ahead in the background, 0 generates them on demand [" + config.getKeyPairPoolSize() + "]")
+				.hasArg()
+				.build();
+		
+		Option keyPairWorkersOption = Option.builder()
+				.longOpt("keypair_workers")
+				.desc("sets the number of threads generating key pairs for the pool [" + config.getKeyPairPoolWorkers() + "]")
+				.hasArg()
+				.build();
+		
 		options.addOption(helpOption);
 		options.addOption(portRESTOption);
 		options.addOption(networkInterfaceOption);
 		options.addOption(logPathOption);
 		options.addOption(connectNodeOption);
+		options.addOption(logModeOption);
+		options.addOption(logSampleRateOption);
+		options.addOption(diskCachePathOption);
+		options.addOption(diskCacheSizeOption);
+		options.addOption(warmUpFileOption);
+		options.addOption(rateLimitOption);
+		options.addOption(rateLimitReadOption);
+		options.addOption(rateLimitWriteOption);
+		options.addOption(keyPairPoolOption);
+		options.addOption(keyPairWorkersOption);
 		
 		// parse common line parameters
 		CommandLineParser parser = new DefaultParser();
@@ -106,12 +184,57 @@ public class GSLSServer implements Daemon
 			{
 				config.setConnectNode(cmd.getOptionValue("c")); // TODO check for valid values
 			}
+			if(cmd.hasOption("m"))
+			{
+				config.setRequestLogMode(cmd.getOptionValue("m")); // TODO check for valid values
+			}
+			if(cmd.hasOption("s"))
+			{
+				config.setRequestLogSampleRate(Double.parseDouble(cmd.getOptionValue("s"))); // TODO check for valid values
+			}
+			if(cmd.hasOption("d"))
+			{
+				config.setDiskCachePath(cmd.getOptionValue("d")); // TODO check for valid values
+			}
+			if(cmd.hasOption("disk_cache_size"))
+			{
+				config.setDiskCacheSize(Long.parseLong(cmd.getOptionValue("disk_cache_size")) * 1024 * 1024); // TODO check for valid values
+			}
+			if(cmd.hasOption("w"))
+			{
+				config.setWarmUpFile(cmd.getOptionValue("w")); // TODO check for valid values
+			}
+			if(cmd.hasOption("r"))
+			{
+				config.setRateLimitEnabled(cmd.getOptionValue("r").equals("on"));
+			}
+			if(cmd.hasOption("rate_limit_read"))
+			{
+				config.setRateLimitReadRate(Double.parseDouble(cmd.getOptionValue("rate_limit_read"))); // TODO check for valid values
+			}
+			if(cmd.hasOption("rate_limit_write"))
+			{
+				config.setRateLimitWriteRate(Double.parseDouble(cmd.getOptionValue("rate_limit_write"))); // TODO check for valid values
+			}
+			if(cmd.hasOption("keypair_pool"))
+			{
+				config.setKeyPairPoolSize(Integer.parseInt(cmd.getOptionValue("keypair_pool"))); // TODO check for valid values
+			}
+			if(cmd.hasOption("keypair_workers"))
+			{
+				config.setKeyPairPoolWorkers(Integer.parseInt(cmd.getOptionValue("keypair_workers"))); // TODO check for valid values
+			}
 			
 			System.out.println("-----Configuration: ");
 			System.out.println("connectNode: " + config.getConnectNode());
 			System.out.println("portREST: " + config.getPortREST());
 			System.out.println("networkInterface: " + config.getNetworkInterface());
-			System.out.println("logPath: " + config.getLogPath() + "\n-----");
+			System.out.println("logPath: " + config.getLogPath());
+			System.out.println("requestLogMode: " + config.getRequestLogMode() + " (sample rate " + config.getRequestLogSampleRate() + ")");
+			System.out.println("diskCache: " + (config.getDiskCacheSize() > 0 ? config.getDiskCacheSize() / (1024 * 1024) + " MB in " + config.getDiskCachePath() : "off"));
+			System.out.println("warmUp: " + (config.getWarmUpFile() != null && !config.getWarmUpFile().isEmpty() ? config.getWarmUpFile() : "off"));
+			System.out.println("rateLimit: " + (config.getRateLimitEnabled() ? "on (read " + config.getRateLimitReadRate() + "/s, write " + config.getRateLimitWriteRate() + "/s)" : "off"));
+			System.out.println("keyPairPool: " + (config.getKeyPairPoolSize() > 0 ? config.getKeyPairPoolSize() + " key pairs, " + config.getKeyPairPoolWorkers() + " workers" : "off") + "\n-----");
 			
 			// setup logging
 			System.setProperty("loginfofile", config.getLogPath() + "log-info.log");
@@ -129,10 +252,43 @@ public class GSLSServer implements Daemon
 		
 		try
 		{
-			LOGGER.info("initializing DHT... ");
+			// records cached before the last shutdown are loaded from disk
+			LOGGER.info("loading record cache... ");
+			RecordCache.getInstance();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> RecordCache.getInstance().flush()));
 			
-			DHTManager.getInstance().initDHT();
-			LOGGER.info("DHT initialized successfully");
+			// key pairs are generated ahead on background threads, so creating one does not block a request thread
+			if(config.getKeyPairPoolSize() > 0)
+			{
+				LOGGER.info("starting key pair pool... ");
+				KeyPairManager.startKeyPairPool(config.getKeyPairPoolSize(), Math.max(1, config.getKeyPairPoolSize() / 4), config.getKeyPairPoolWorkers());
+			}
+			
+			// the DHT join and the warm-up run in the background, /ready reports when they are done.
+			// until then, requests are answered from the cache or rejected as unavailable
+			Thread join = new Thread(() ->
+			{
+				try
+				{
+					LOGGER.info("initializing DHT... ");
+					
+					DHTManager.getInstance().initDHT();
+					LOGGER.info("DHT initialized successfully");
+				}
+				catch (Exception e)
+				{
+					LOGGER.info("DHT initialization failed!");
+					e.printStackTrace();
+				}
+				finally
+				{
+					// runs even if the join failed, so /ready does not wait for a warm-up that never started
+					LOGGER.info("warming up record cache... ");
+					WarmUp.getInstance().run();
+				}
+			}, "dht-join");
+			join.setDaemon(true);
+			join.start();
 			
 			LOGGER.info("initializing GSLS server... ");
 			
@@ -149,24 +305,99 @@ public class GSLSServer implements Daemon
 		}
 	}
 	
-	// 5 minute delay, then every 12 hours
-	//@Scheduled(initialDelay=5 * 60 * 1000, fixedRate=12 * 60 * 60 * 1000)
-	@Scheduled(initialDelay=2 * 60 * 1000, fixedRate=1 * 60 * 60 * 1000)
-	protected void reconnect()
+	// one thread per scheduled job, so a slow anti-entropy round or hot key replication does not hold up the probe and the health check
+	@Bean
+	public TaskScheduler taskScheduler()
 	{
-		LOGGER.info("running reconnect functionality...");
+		ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+		scheduler.setPoolSize(6);
+		scheduler.setThreadNamePrefix("gsls-scheduled-");
 		
+		return scheduler;
+	}
+	
+	// 2 minute delay, then every 30 seconds. reconnects only happen if the overlay is unhealthy
+	@Scheduled(initialDelay=2 * 60 * 1000, fixedDelay=30 * 1000)
+	protected void checkOverlayHealth()
+	{
+		try
+		{
+			OverlayHealthMonitor.getInstance().check();
+		}
+		catch (Exception e)
+		{
+			LOGGER.info("overlay health check failed!");
+			e.printStackTrace();
+		}
+	}
+	
+	// every 5 seconds. closes the DHT circuit once the overlay is reachable again
+	@Scheduled(initialDelay=60 * 1000, fixedDelay=5 * 1000)
+	protected void probeOverlay()
+	{
+		try
+		{
+			DHTManager.getInstance().probe();
+		}
+		catch (Exception e)
+		{
+			LOGGER.info("overlay probe failed!");
+			e.printStackTrace();
+		}
+	}
+	
+	// every minute, once the peer has joined the overlay
+	@Scheduled(initialDelay=5 * 60 * 1000, fixedDelay=60 * 1000)
+	protected void synchronizeReplicas()
+	{
 		try
 		{
-			DHTManager.getInstance().connectToConnectNode();
+			DHTManager.getInstance().synchronizeReplicas();
 		}
 		catch (Exception e)
 		{
-			LOGGER.info("reconnect functionality failed!");
+			LOGGER.info("anti-entropy round failed!");
 			e.printStackTrace();
 		}
 	}
 	
+	// every minute. the hot key threshold counts gets per minute
+	@Scheduled(initialDelay=60 * 1000, fixedDelay=60 * 1000)
+	protected void rebalanceHotKeys()
+	{
+		try
+		{
+			DHTManager.getInstance().rebalanceHotKeys();
+		}
+		catch (Exception e)
+		{
+			LOGGER.info("hot key replication failed!");
+			e.printStackTrace();
+		}
+	}
+	
+	// every 5 minutes. read by the warm-up after the next restart
+	@Scheduled(initialDelay=5 * 60 * 1000, fixedDelay=5 * 60 * 1000)
+	protected void writeHotKeys()
+	{
+		try
+		{
+			WarmUp.getInstance().writeHotKeys();
+		}
+		catch (Exception e)
+		{
+			LOGGER.info("writing hot key list failed!");
+			e.printStackTrace();
+		}
+	}
+	
+	// every minute
+	@Scheduled(fixedDelay=60 * 1000)
+	protected void evictIdleRateLimits()
+	{
+		RateLimits.getInstance().evictIdle();
+	}
+	
 	@Override
 	public void init(DaemonContext daemonContext) throws DaemonInitException, Exception
 	{
@@ -28,10 +28,152 @@ public class Config
 	private static final String		connectNodeDefault		= "130.149.22.220";
 	private static final int		portRESTDefault			= 4002;
 
+	private static final int		healthMinNeighborsDefault		= 1;
+	private static final int		healthMinSamplesDefault			= 10;
+	private static final double		healthMaxFailureRatioDefault	= 0.5;
+	private static final long		healthMaxRoutingLatencyDefault	= 5 * 1000;
+	private static final long		reconnectBackoffMinDefault		= 60 * 1000;
+	private static final long		reconnectBackoffMaxDefault		= 60 * 60 * 1000;
+
+	private static final String		requestLogModeDefault			= "sync";
+	private static final double		requestLogSampleRateDefault		= 0.01;
+	private static final int		requestLogQueueSizeDefault		= 8192;
+
+	private static final boolean	verifyGlobalIDDefault			= true;
+	private static final int		gidCacheSizeDefault				= 10000;
+
+	private static final boolean	rateLimitEnabledDefault			= false;
+	private static final double		rateLimitReadRateDefault		= 50;
+	private static final int		rateLimitReadBurstDefault		= 100;
+	private static final double		rateLimitWriteRateDefault		= 2;
+	private static final int		rateLimitWriteBurstDefault		= 10;
+	private static final double		rateLimitPlatformWriteRateDefault	= 20;
+	private static final int		rateLimitPlatformWriteBurstDefault	= 100;
+	private static final long		rateLimitIdleTimeoutDefault		= 10 * 60 * 1000;
+
+	private static final int		dhtConcurrencyLimitInitialDefault	= 20;
+	private static final int		dhtConcurrencyLimitMinDefault	= 2;
+	private static final int		dhtConcurrencyLimitMaxDefault	= 200;
+	private static final double		dhtConcurrencyLatencyToleranceDefault	= 2.0;
+	private static final double		dhtConcurrencyBackoffRatioDefault	= 0.9;
+	private static final int		dhtRetryAfterDefault			= 1;
+
+	private static final long		requestTimeoutDefault			= 10 * 1000;
+	private static final long		dhtGetTimeoutDefault			= 5 * 1000;
+	private static final long		dhtPutTimeoutDefault			= 10 * 1000;
+	private static final long		dhtConnectTimeoutDefault		= 30 * 1000;
+
+	private static final int		recordCacheSizeDefault			= 10000;
+	private static final long		recordCacheTtlDefault			= 30 * 1000;
+	private static final long		recordCacheMaxStaleDefault		= 24 * 60 * 60 * 1000;
+	private static final int		circuitFailureThresholdDefault	= 5;
+	private static final long		circuitProbeTimeoutDefault		= 2 * 1000;
+
+	private static final String		localReadPolicyDefault			= "revalidate";
+	private static final long		localRevalidateIntervalDefault	= 30 * 1000;
+
+	private static final String		recordRevalidationDefault		= "digest";
+
+	private static final boolean	invalidationEnabledDefault		= true;
+	private static final int		invalidationFanoutDefault		= 32;
+
+	private static final String		dhtGetModeDefault				= "newest";
+	private static final int		readRepairMaxInFlightDefault	= 16;
+
+	private static final boolean	antiEntropyEnabledDefault		= true;
+	private static final int		antiEntropyDepthDefault			= 10;
+	private static final int		antiEntropyPartnersDefault		= 3;
+	private static final long		antiEntropyTimeoutDefault		= 5 * 1000;
+
+	private static final boolean	hotKeyEnabledDefault			= true;
+	private static final int		hotKeyCapacityDefault			= 128;
+	private static final int		hotKeyThresholdDefault			= 1000;
+	private static final int		hotKeyMaxReplicasDefault		= 4;
+	private static final long		hotKeyReplicaTtlDefault			= 5 * 60 * 1000;
+
+	private static final long		offHeapCacheSizeDefault			= 0;
+	private static final int		offHeapSlabSizeDefault			= 16 * 1024 * 1024;
+
+	private static final String		diskCachePathDefault			= "cache";
+	private static final long		diskCacheSizeDefault			= 0;
+	private static final int		diskCacheSegmentSizeDefault		= 64 * 1024 * 1024;
+
+	private static final String		warmUpFileDefault				= null;
+	private static final int		warmUpKeysDefault				= 1000;
+	private static final int		warmUpParallelismDefault		= 8;
+	private static final long		warmUpTimeoutDefault			= 60 * 1000;
+
+	private static final int		readyMinNeighborsDefault		= 1;
+
+	private static final int		keyPairPoolSizeDefault			= 0;
+	private static final int		keyPairPoolWorkersDefault		= Runtime.getRuntime().availableProcessors();
+
 	private String networkInterface;
 	private String logPath;
 	private String connectNode;
 	private int portREST;
+	private int healthMinNeighbors;
+	private int healthMinSamples;
+	private double healthMaxFailureRatio;
+	private long healthMaxRoutingLatency;
+	private long reconnectBackoffMin;
+	private long reconnectBackoffMax;
+	private String requestLogMode;
+	private double requestLogSampleRate;
+	private int requestLogQueueSize;
+	private boolean verifyGlobalID;
+	private int gidCacheSize;
+	private boolean rateLimitEnabled;
+	private double rateLimitReadRate;
+	private int rateLimitReadBurst;
+	private double rateLimitWriteRate;
+	private int rateLimitWriteBurst;
+	private double rateLimitPlatformWriteRate;
+	private int rateLimitPlatformWriteBurst;
+	private long rateLimitIdleTimeout;
+	private int dhtConcurrencyLimitInitial;
+	private int dhtConcurrencyLimitMin;
+	private int dhtConcurrencyLimitMax;
+	private double dhtConcurrencyLatencyTolerance;
+	private double dhtConcurrencyBackoffRatio;
+	private int dhtRetryAfter;
+	private long requestTimeout;
+	private long dhtGetTimeout;
+	private long dhtPutTimeout;
+	private long dhtConnectTimeout;
+	private int recordCacheSize;
+	private long recordCacheTtl;
+	private long recordCacheMaxStale;
+	private int circuitFailureThreshold;
+	private long circuitProbeTimeout;
+	private String localReadPolicy;
+	private long localRevalidateInterval;
+	private String recordRevalidation;
+	private boolean invalidationEnabled;
+	private int invalidationFanout;
+	private String dhtGetMode;
+	private int readRepairMaxInFlight;
+	private boolean antiEntropyEnabled;
+	private int antiEntropyDepth;
+	private int antiEntropyPartners;
+	private long antiEntropyTimeout;
+	private boolean hotKeyEnabled;
+	private int hotKeyCapacity;
+	private int hotKeyThreshold;
+	private int hotKeyMaxReplicas;
+	private long hotKeyReplicaTtl;
+	private long offHeapCacheSize;
+	private int offHeapSlabSize;
+	private String diskCachePath;
+	private long diskCacheSize;
+	private int diskCacheSegmentSize;
+	private String warmUpFile;
+	private int warmUpKeys;
+	private int warmUpParallelism;
+	private long warmUpTimeout;
+	private int readyMinNeighbors;
+	private int keyPairPoolSize;
+	private int keyPairPoolWorkers;
 
 	private Config()
 	{
@@ -53,6 +195,68 @@ public class Config
 		this.connectNode = connectNodeDefault;
 		this.logPath = logPathDefault; // TODO check if this is working as intended on all platforms
 		this.portREST = portRESTDefault;
+		this.healthMinNeighbors = healthMinNeighborsDefault;
+		this.healthMinSamples = healthMinSamplesDefault;
+		this.healthMaxFailureRatio = healthMaxFailureRatioDefault;
+		this.healthMaxRoutingLatency = healthMaxRoutingLatencyDefault;
+		this.reconnectBackoffMin = reconnectBackoffMinDefault;
+		this.reconnectBackoffMax = reconnectBackoffMaxDefault;
+		this.requestLogMode = requestLogModeDefault;
+		this.requestLogSampleRate = requestLogSampleRateDefault;
+		this.requestLogQueueSize = requestLogQueueSizeDefault;
+		this.verifyGlobalID = verifyGlobalIDDefault;
+		this.gidCacheSize = gidCacheSizeDefault;
+		this.rateLimitEnabled = rateLimitEnabledDefault;
+		this.rateLimitReadRate = rateLimitReadRateDefault;
+		this.rateLimitReadBurst = rateLimitReadBurstDefault;
+		this.rateLimitWriteRate = rateLimitWriteRateDefault;
+		this.rateLimitWriteBurst = rateLimitWriteBurstDefault;
+		this.rateLimitPlatformWriteRate = rateLimitPlatformWriteRateDefault;
+		this.rateLimitPlatformWriteBurst = rateLimitPlatformWriteBurstDefault;
+		this.rateLimitIdleTimeout = rateLimitIdleTimeoutDefault;
+		this.dhtConcurrencyLimitInitial = dhtConcurrencyLimitInitialDefault;
+		this.dhtConcurrencyLimitMin = dhtConcurrencyLimitMinDefault;
+		this.dhtConcurrencyLimitMax = dhtConcurrencyLimitMaxDefault;
+		this.dhtConcurrencyLatencyTolerance = dhtConcurrencyLatencyToleranceDefault;
+		this.dhtConcurrencyBackoffRatio = dhtConcurrencyBackoffRatioDefault;
+		this.dhtRetryAfter = dhtRetryAfterDefault;
+		this.requestTimeout = requestTimeoutDefault;
+		this.dhtGetTimeout = dhtGetTimeoutDefault;
+		this.dhtPutTimeout = dhtPutTimeoutDefault;
+		this.dhtConnectTimeout = dhtConnectTimeoutDefault;
+		this.recordCacheSize = recordCacheSizeDefault;
+		this.recordCacheTtl = recordCacheTtlDefault;
+		this.recordCacheMaxStale = recordCacheMaxStaleDefault;
+		this.circuitFailureThreshold = circuitFailureThresholdDefault;
+		this.circuitProbeTimeout = circuitProbeTimeoutDefault;
+		this.localReadPolicy = localReadPolicyDefault;
+		this.localRevalidateInterval = localRevalidateIntervalDefault;
+		this.recordRevalidation = recordRevalidationDefault;
+		this.invalidationEnabled = invalidationEnabledDefault;
+		this.invalidationFanout = invalidationFanoutDefault;
+		this.dhtGetMode = dhtGetModeDefault;
+		this.readRepairMaxInFlight = readRepairMaxInFlightDefault;
+		this.antiEntropyEnabled = antiEntropyEnabledDefault;
+		this.antiEntropyDepth = antiEntropyDepthDefault;
+		this.antiEntropyPartners = antiEntropyPartnersDefault;
+		this.antiEntropyTimeout = antiEntropyTimeoutDefault;
+		this.hotKeyEnabled = hotKeyEnabledDefault;
+		this.hotKeyCapacity = hotKeyCapacityDefault;
+		this.hotKeyThreshold = hotKeyThresholdDefault;
+		this.hotKeyMaxReplicas = hotKeyMaxReplicasDefault;
+		this.hotKeyReplicaTtl = hotKeyReplicaTtlDefault;
+		this.offHeapCacheSize = offHeapCacheSizeDefault;
+		this.offHeapSlabSize = offHeapSlabSizeDefault;
+		this.diskCachePath = diskCachePathDefault;
+		this.diskCacheSize = diskCacheSizeDefault;
+		this.diskCacheSegmentSize = diskCacheSegmentSizeDefault;
+		this.warmUpFile = warmUpFileDefault;
+		this.warmUpKeys = warmUpKeysDefault;
+		this.warmUpParallelism = warmUpParallelismDefault;
+		this.warmUpTimeout = warmUpTimeoutDefault;
+		this.readyMinNeighbors = readyMinNeighborsDefault;
+		this.keyPairPoolSize = keyPairPoolSizeDefault;
+		this.keyPairPoolWorkers = keyPairPoolWorkersDefault;
 	}
 
 	public String getNetworkInterface() {
@@ -91,6 +295,502 @@ public class Config
 		return portDHT;
 	}
 
+	public int getHealthMinNeighbors() {
+		return healthMinNeighbors;
+	}
+
+	public void setHealthMinNeighbors(int healthMinNeighbors) {
+		this.healthMinNeighbors = healthMinNeighbors;
+	}
+
+	public int getHealthMinSamples() {
+		return healthMinSamples;
+	}
+
+	public void setHealthMinSamples(int healthMinSamples) {
+		this.healthMinSamples = healthMinSamples;
+	}
+
+	public double getHealthMaxFailureRatio() {
+		return healthMaxFailureRatio;
+	}
+
+	public void setHealthMaxFailureRatio(double healthMaxFailureRatio) {
+		this.healthMaxFailureRatio = healthMaxFailureRatio;
+	}
+
+	public long getHealthMaxRoutingLatency() {
+		return healthMaxRoutingLatency;
+	}
+
+	public void setHealthMaxRoutingLatency(long healthMaxRoutingLatency) {
+		this.healthMaxRoutingLatency = healthMaxRoutingLatency;
+	}
+
+	public long getReconnectBackoffMin() {
+		return reconnectBackoffMin;
+	}
+
+	public void setReconnectBackoffMin(long reconnectBackoffMin) {
+		this.reconnectBackoffMin = reconnectBackoffMin;
+	}
+
+	public long getReconnectBackoffMax() {
+		return reconnectBackoffMax;
+	}
+
+	public void setReconnectBackoffMax(long reconnectBackoffMax) {
+		this.reconnectBackoffMax = reconnectBackoffMax;
+	}
+
+	public String getRequestLogMode() {
+		return requestLogMode;
+	}
+
+	public void setRequestLogMode(String requestLogMode) {
+		this.requestLogMode = requestLogMode;
+	}
+
+	public double getRequestLogSampleRate() {
+		return requestLogSampleRate;
+	}
+
+	public void setRequestLogSampleRate(double requestLogSampleRate) {
+		this.requestLogSampleRate = requestLogSampleRate;
+	}
+
+	public int getRequestLogQueueSize() {
+		return requestLogQueueSize;
+	}
+
+	public void setRequestLogQueueSize(int requestLogQueueSize) {
+		this.requestLogQueueSize = requestLogQueueSize;
+	}
+
+	public boolean getVerifyGlobalID() {
+		return verifyGlobalID;
+	}
+
+	public void setVerifyGlobalID(boolean verifyGlobalID) {
+		this.verifyGlobalID = verifyGlobalID;
+	}
+
+	public int getGidCacheSize() {
+		return gidCacheSize;
+	}
+
+	public void setGidCacheSize(int gidCacheSize) {
+		this.gidCacheSize = gidCacheSize;
+	}
+
+	public boolean getRateLimitEnabled() {
+		return rateLimitEnabled;
+	}
+
+	public void setRateLimitEnabled(boolean rateLimitEnabled) {
+		this.rateLimitEnabled = rateLimitEnabled;
+	}
+
+	public double getRateLimitReadRate() {
+		return rateLimitReadRate;
+	}
+
+	public void setRateLimitReadRate(double rateLimitReadRate) {
+		this.rateLimitReadRate = rateLimitReadRate;
+	}
+
+	public int getRateLimitReadBurst() {
+		return rateLimitReadBurst;
+	}
+
+	public void setRateLimitReadBurst(int rateLimitReadBurst) {
+		this.rateLimitReadBurst = rateLimitReadBurst;
+	}
+
+	public double getRateLimitWriteRate() {
+		return rateLimitWriteRate;
+	}
+
+	public void setRateLimitWriteRate(double rateLimitWriteRate) {
+		this.rateLimitWriteRate = rateLimitWriteRate;
+	}
+
+	public int getRateLimitWriteBurst() {
+		return rateLimitWriteBurst;
+	}
+
+	public void setRateLimitWriteBurst(int rateLimitWriteBurst) {
+		this.rateLimitWriteBurst = rateLimitWriteBurst;
+	}
+
+	public double getRateLimitPlatformWriteRate() {
+		return rateLimitPlatformWriteRate;
+	}
+
+	public void setRateLimitPlatformWriteRate(double rateLimitPlatformWriteRate) {
+		this.rateLimitPlatformWriteRate = rateLimitPlatformWriteRate;
+	}
+
+	public int getRateLimitPlatformWriteBurst() {
+		return rateLimitPlatformWriteBurst;
+	}
+
+	public void setRateLimitPlatformWriteBurst(int rateLimitPlatformWriteBurst) {
+		this.rateLimitPlatformWriteBurst = rateLimitPlatformWriteBurst;
+	}
+
+	public long getRateLimitIdleTimeout() {
+		return rateLimitIdleTimeout;
+	}
+
+	public void setRateLimitIdleTimeout(long rateLimitIdleTimeout) {
+		this.rateLimitIdleTimeout = rateLimitIdleTimeout;
+	}
+
+	public int getDhtConcurrencyLimitInitial() {
+		return dhtConcurrencyLimitInitial;
+	}
+
+	public void setDhtConcurrencyLimitInitial(int dhtConcurrencyLimitInitial) {
+		this.dhtConcurrencyLimitInitial = dhtConcurrencyLimitInitial;
+	}
+
+	public int getDhtConcurrencyLimitMin() {
+		return dhtConcurrencyLimitMin;
+	}
+
+	public void setDhtConcurrencyLimitMin(int dhtConcurrencyLimitMin) {
+		this.dhtConcurrencyLimitMin = dhtConcurrencyLimitMin;
+	}
+
+	public int getDhtConcurrencyLimitMax() {
+		return dhtConcurrencyLimitMax;
+	}
+
+	public void setDhtConcurrencyLimitMax(int dhtConcurrencyLimitMax) {
+		this.dhtConcurrencyLimitMax = dhtConcurrencyLimitMax;
+	}
+
+	public double getDhtConcurrencyLatencyTolerance() {
+		return dhtConcurrencyLatencyTolerance;
+	}
+
+	public void setDhtConcurrencyLatencyTolerance(double dhtConcurrencyLatencyTolerance) {
+		this.dhtConcurrencyLatencyTolerance = dhtConcurrencyLatencyTolerance;
+	}
+
+	public double getDhtConcurrencyBackoffRatio() {
+		return dhtConcurrencyBackoffRatio;
+	}
+
+	public void setDhtConcurrencyBackoffRatio(double dhtConcurrencyBackoffRatio) {
+		this.dhtConcurrencyBackoffRatio = dhtConcurrencyBackoffRatio;
+	}
+
+	public int getDhtRetryAfter() {
+		return dhtRetryAfter;
+	}
+
+	public void setDhtRetryAfter(int dhtRetryAfter) {
+		this.dhtRetryAfter = dhtRetryAfter;
+	}
+
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	public void setRequestTimeout(long requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	public long getDhtGetTimeout() {
+		return dhtGetTimeout;
+	}
+
+	public void setDhtGetTimeout(long dhtGetTimeout) {
+		this.dhtGetTimeout = dhtGetTimeout;
+	}
+
+	public long getDhtPutTimeout() {
+		return dhtPutTimeout;
+	}
+
+	public void setDhtPutTimeout(long dhtPutTimeout) {
+		this.dhtPutTimeout = dhtPutTimeout;
+	}
+
+	public long getDhtConnectTimeout() {
+		return dhtConnectTimeout;
+	}
+
+	public void setDhtConnectTimeout(long dhtConnectTimeout) {
+		this.dhtConnectTimeout = dhtConnectTimeout;
+	}
+
+	public int getRecordCacheSize() {
+		return recordCacheSize;
+	}
+
+	public void setRecordCacheSize(int recordCacheSize) {
+		this.recordCacheSize = recordCacheSize;
+	}
+
+	public long getRecordCacheTtl() {
+		return recordCacheTtl;
+	}
+
+	public void setRecordCacheTtl(long recordCacheTtl) {
+		this.recordCacheTtl = recordCacheTtl;
+	}
+
+	public long getRecordCacheMaxStale() {
+		return recordCacheMaxStale;
+	}
+
+	public void setRecordCacheMaxStale(long recordCacheMaxStale) {
+		this.recordCacheMaxStale = recordCacheMaxStale;
+	}
+
+	public int getCircuitFailureThreshold() {
+		return circuitFailureThreshold;
+	}
+
+	public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+		this.circuitFailureThreshold = circuitFailureThreshold;
+	}
+
+	public long getCircuitProbeTimeout() {
+		return circuitProbeTimeout;
+	}
+
+	public void setCircuitProbeTimeout(long circuitProbeTimeout) {
+		this.circuitProbeTimeout = circuitProbeTimeout;
+	}
+
+	public String getLocalReadPolicy() {
+		return localReadPolicy;
+	}
+
+	public void setLocalReadPolicy(String localReadPolicy) {
+		this.localReadPolicy = localReadPolicy;
+	}
+
+	public long getLocalRevalidateInterval() {
+		return localRevalidateInterval;
+	}
+
+	public void setLocalRevalidateInterval(long localRevalidateInterval) {
+		this.localRevalidateInterval = localRevalidateInterval;
+	}
+
+	public String getRecordRevalidation() {
+		return recordRevalidation;
+	}
+
+	public void setRecordRevalidation(String recordRevalidation) {
+		this.recordRevalidation = recordRevalidation;
+	}
+
+	public boolean getInvalidationEnabled() {
+		return invalidationEnabled;
+	}
+
+	public void setInvalidationEnabled(boolean invalidationEnabled) {
+		this.invalidationEnabled = invalidationEnabled;
+	}
+
+	public int getInvalidationFanout() {
+		return invalidationFanout;
+	}
+
+	public void setInvalidationFanout(int invalidationFanout) {
+		this.invalidationFanout = invalidationFanout;
+	}
+
+	public String getDhtGetMode() {
+		return dhtGetMode;
+	}
+
+	public void setDhtGetMode(String dhtGetMode) {
+		this.dhtGetMode = dhtGetMode;
+	}
+
+	public int getReadRepairMaxInFlight() {
+		return readRepairMaxInFlight;
+	}
+
+	public void setReadRepairMaxInFlight(int readRepairMaxInFlight) {
+		this.readRepairMaxInFlight = readRepairMaxInFlight;
+	}
+
+	public boolean getAntiEntropyEnabled() {
+		return antiEntropyEnabled;
+	}
+
+	public void setAntiEntropyEnabled(boolean antiEntropyEnabled) {
+		this.antiEntropyEnabled = antiEntropyEnabled;
+	}
+
+	public int getAntiEntropyDepth() {
+		return antiEntropyDepth;
+	}
+
+	public void setAntiEntropyDepth(int antiEntropyDepth) {
+		this.antiEntropyDepth = antiEntropyDepth;
+	}
+
+	public int getAntiEntropyPartners() {
+		return antiEntropyPartners;
+	}
+
+	public void setAntiEntropyPartners(int antiEntropyPartners) {
+		this.antiEntropyPartners = antiEntropyPartners;
+	}
+
+	public long getAntiEntropyTimeout() {
+		return antiEntropyTimeout;
+	}
+
+	public void setAntiEntropyTimeout(long antiEntropyTimeout) {
+		this.antiEntropyTimeout = antiEntropyTimeout;
+	}
+
+	public boolean getHotKeyEnabled() {
+		return hotKeyEnabled;
+	}
+
+	public void setHotKeyEnabled(boolean hotKeyEnabled) {
+		this.hotKeyEnabled = hotKeyEnabled;
+	}
+
+	public int getHotKeyCapacity() {
+		return hotKeyCapacity;
+	}
+
+	public void setHotKeyCapacity(int hotKeyCapacity) {
+		this.hotKeyCapacity = hotKeyCapacity;
+	}
+
+	public int getHotKeyThreshold() {
+		return hotKeyThreshold;
+	}
+
+	public void setHotKeyThreshold(int hotKeyThreshold) {
+		this.hotKeyThreshold = hotKeyThreshold;
+	}
+
+	public int getHotKeyMaxReplicas() {
+		return hotKeyMaxReplicas;
+	}
+
+	public void setHotKeyMaxReplicas(int hotKeyMaxReplicas) {
+		this.hotKeyMaxReplicas = hotKeyMaxReplicas;
+	}
+
+	public long getHotKeyReplicaTtl() {
+		return hotKeyReplicaTtl;
+	}
+
+	public void setHotKeyReplicaTtl(long hotKeyReplicaTtl) {
+		this.hotKeyReplicaTtl = hotKeyReplicaTtl;
+	}
+
+	public long getOffHeapCacheSize() {
+		return offHeapCacheSize;
+	}
+
+	public void setOffHeapCacheSize(long offHeapCacheSize) {
+		this.offHeapCacheSize = offHeapCacheSize;
+	}
+
+	public int getOffHeapSlabSize() {
+		return offHeapSlabSize;
+	}
+
+	public void setOffHeapSlabSize(int offHeapSlabSize) {
+		this.offHeapSlabSize = offHeapSlabSize;
+	}
+
+	public String getDiskCachePath() {
+		return diskCachePath;
+	}
+
+	public void setDiskCachePath(String diskCachePath) {
+		this.diskCachePath = diskCachePath;
+	}
+
+	public long getDiskCacheSize() {
+		return diskCacheSize;
+	}
+
+	public void setDiskCacheSize(long diskCacheSize) {
+		this.diskCacheSize = diskCacheSize;
+	}
+
+	public int getDiskCacheSegmentSize() {
+		return diskCacheSegmentSize;
+	}
+
+	public void setDiskCacheSegmentSize(int diskCacheSegmentSize) {
+		this.diskCacheSegmentSize = diskCacheSegmentSize;
+	}
+
+	public String getWarmUpFile() {
+		return warmUpFile;
+	}
+
+	public void setWarmUpFile(String warmUpFile) {
+		this.warmUpFile = warmUpFile;
+	}
+
+	public int getWarmUpKeys() {
+		return warmUpKeys;
+	}
+
+	public void setWarmUpKeys(int warmUpKeys) {
+		this.warmUpKeys = warmUpKeys;
+	}
+
+	public int getWarmUpParallelism() {
+		return warmUpParallelism;
+	}
+
+	public void setWarmUpParallelism(int warmUpParallelism) {
+		this.warmUpParallelism = warmUpParallelism;
+	}
+
+	public long getWarmUpTimeout() {
+		return warmUpTimeout;
+	}
+
+	public void setWarmUpTimeout(long warmUpTimeout) {
+		this.warmUpTimeout = warmUpTimeout;
+	}
+
+	public int getReadyMinNeighbors() {
+		return readyMinNeighbors;
+	}
+
+	public void setReadyMinNeighbors(int readyMinNeighbors) {
+		this.readyMinNeighbors = readyMinNeighbors;
+	}
+
+	public int getKeyPairPoolSize() {
+		return keyPairPoolSize;
+	}
+
+	public void setKeyPairPoolSize(int keyPairPoolSize) {
+		this.keyPairPoolSize = keyPairPoolSize;
+	}
+
+	public int getKeyPairPoolWorkers() {
+		return keyPairPoolWorkers;
+	}
+
+	public void setKeyPairPoolWorkers(int keyPairPoolWorkers) {
+		this.keyPairPoolWorkers = keyPairPoolWorkers;
+	}
+
 	/**
 	 * retrieves the product name as a String
 	 *
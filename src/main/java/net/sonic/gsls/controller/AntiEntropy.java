@@ -0,0 +1,478 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.model.SocialRecord;
+import net.sonic.gsls.model.SocialRecordIntegrityException;
+import net.sonic.gsls.util.XSDDateTime;
+import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.futures.FutureDirect;
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.peers.PeerAddress;
+import net.tomp2p.storage.Data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Anti-entropy between replica peers. In each round the peer compares the Merkle tree of its
+ * local storage with the tree of one of its closest neighbours. Both trees only cover the key
+ * range the two peers replicate together, so records only one of them is responsible for do not
+ * make the trees differ. Only subtrees whose hashes differ
+ * are descended, so peers holding the same records exchange a single hash. Records that are
+ * missing locally or differ are pulled from the neighbour and stored if they verify and are newer
+ * than the local copy.
+ *
+ * @version 1
+ */
+public class AntiEntropy
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(AntiEntropy.class);
+	
+	// replication factor used by TomP2P for puts and indirect replication
+	static final int			REPLICATION_FACTOR	= 6;
+	private static final int	RECORDS_PER_REQUEST	= 64;
+	private static final long	TREE_MAX_AGE		= 10 * 1000;
+	
+	private static final Counter ROUNDS_IN_SYNC = Metrics.getInstance().counter("gsls_anti_entropy_rounds_total", "anti-entropy rounds with a neighbouring replica", "result", "in_sync");
+	private static final Counter ROUNDS_REPAIRED = Metrics.getInstance().counter("gsls_anti_entropy_rounds_total", "anti-entropy rounds with a neighbouring replica", "result", "repaired");
+	private static final Counter ROUNDS_FAILED = Metrics.getInstance().counter("gsls_anti_entropy_rounds_total", "anti-entropy rounds with a neighbouring replica", "result", "failed");
+	private static final Counter NODES_COMPARED = Metrics.getInstance().counter("gsls_anti_entropy_nodes_compared_total", "Merkle tree nodes compared with neighbouring replicas");
+	private static final Counter RECORDS_STORED = Metrics.getInstance().counter("gsls_anti_entropy_records_total", "records pulled from neighbouring replicas", "result", "stored");
+	private static final Counter RECORDS_SKIPPED = Metrics.getInstance().counter("gsls_anti_entropy_records_total", "records pulled from neighbouring replicas", "result", "skipped");
+	private static final Counter RECORDS_INVALID = Metrics.getInstance().counter("gsls_anti_entropy_records_total", "records pulled from neighbouring replicas", "result", "invalid");
+	private static final Counter REQUESTS_REJECTED = Metrics.getInstance().counter("gsls_anti_entropy_requests_rejected_total", "anti-entropy requests of peers outside the replica neighbourhood or with a different tree depth");
+	
+	private final PeerDHT peer;
+	private final Random random = new Random();
+	
+	// trees of the key ranges shared with the recent partners, least recently used first. Only the
+	// closest neighbours are answered, so at most that many partners need a tree
+	private final Map<Number160, MerkleTree> trees = new LinkedHashMap<Number160, MerkleTree>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Number160, MerkleTree> eldest)
+		{
+			return size() > closestNeighbors();
+		}
+	};
+	
+	/**
+	 * requests the hashes of the given tree nodes. Answered with a byte[][] in the same order
+	 */
+	public static class TreeRequest implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int depth;
+		private final int[] nodes;
+		
+		public TreeRequest(int depth, int[] nodes)
+		{
+			this.depth = depth;
+			this.nodes = nodes;
+		}
+	}
+	
+	/**
+	 * requests the location keys and data hashes of the given leaves. Answered with a HashMap<Number160, Number160>
+	 */
+	public static class LeafRequest implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final int depth;
+		private final int[] leaves;
+		
+		public LeafRequest(int depth, int[] leaves)
+		{
+			this.depth = depth;
+			this.leaves = leaves;
+		}
+	}
+	
+	/**
+	 * requests the records stored under the given location keys. Answered with a HashMap<Number160, String>
+	 */
+	public static class RecordRequest implements Serializable
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final ArrayList<Number160> keys;
+		
+		public RecordRequest(ArrayList<Number160> keys)
+		{
+			this.keys = keys;
+		}
+	}
+	
+	public AntiEntropy(PeerDHT peer)
+	{
+		this.peer = peer;
+	}
+	
+	/**
+	 * @param partner the peer the tree is compared with
+	 * @param rebuild true to rebuild the tree even if it is recent. Only used for the rounds this peer starts
+	 * @return a tree of the key range shared with the partner that is at most a few seconds old
+	 */
+	private synchronized MerkleTree getTree(Number160 partner, boolean rebuild)
+	{
+		int depth = Config.getInstance().getAntiEntropyDepth();
+		MerkleTree current = trees.get(partner);
+		
+		if(rebuild || current == null || current.getDepth() != depth || System.currentTimeMillis() - current.getCreated() > TREE_MAX_AGE)
+		{
+			current = new MerkleTree(peer.storageLayer().get(), depth, sharedRange(partner));
+			trees.put(partner, current);
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * @return number of closest neighbours that may share a key range with this peer. The other
+	 * replicas of a key this peer is responsible for are among its closest neighbours, allowing
+	 * for replicas on both sides of the peer and for differences between the routing tables
+	 */
+	private static int closestNeighbors()
+	{
+		return Math.max(2 * REPLICATION_FACTOR, Config.getInstance().getAntiEntropyPartners());
+	}
+	
+	/**
+	 * @return true if the candidate is among the closest neighbours of this peer, i.e. both replicate a common key range
+	 */
+	private boolean isClosestNeighbor(Number160 candidate)
+	{
+		Number160 own = peer.peer().peerID();
+		Number160 distance = candidate.xor(own);
+		int closer = 0;
+		
+		for(PeerAddress neighbor : peer.peerBean().peerMap().all())
+			if(neighbor.peerId().xor(own).compareTo(distance) < 0)
+				closer++;
+		
+		return closer < closestNeighbors();
+	}
+	
+	/**
+	 * @return selects the location keys both this peer and the partner are responsible for, as far as this peer knows its neighbourhood
+	 */
+	private Predicate<Number160> sharedRange(Number160 partner)
+	{
+		Number160 own = peer.peer().peerID();
+		List<PeerAddress> neighbors = peer.peerBean().peerMap().all();
+		
+		return locationKey -> isReplica(locationKey, own, neighbors) && isReplica(locationKey, partner, neighbors);
+	}
+	
+	/**
+	 * answers anti-entropy requests of other peers. Only the closest neighbours share a key range
+	 * with this peer, requests of other peers and requests for trees of a different depth are
+	 * rejected, so they cannot make this peer build trees for arbitrary partners
+	 *
+	 * @param sender
+	 * @param request
+	 * @return the answer, or null if the request is not an anti-entropy request or is rejected
+	 */
+	public Object reply(PeerAddress sender, Object request)
+	{
+		if(!(request instanceof TreeRequest || request instanceof LeafRequest || request instanceof RecordRequest))
+			return null;
+		
+		if(!isClosestNeighbor(sender.peerId()))
+		{
+			REQUESTS_REJECTED.increment();
+			return null;
+		}
+		
+		if(request instanceof TreeRequest)
+		{
+			TreeRequest treeRequest = (TreeRequest) request;
+			
+			if(treeRequest.depth != Config.getInstance().getAntiEntropyDepth())
+			{
+				REQUESTS_REJECTED.increment();
+				return null;
+			}
+			
+			MerkleTree current = getTree(sender.peerId(), false);
+			byte[][] hashes = new byte[treeRequest.nodes.length][];
+			
+			for(int i=0; i<hashes.length; i++)
+				if(treeRequest.nodes[i] >= 0 && treeRequest.nodes[i] < current.size())
+					hashes[i] = current.getHash(treeRequest.nodes[i]);
+			
+			return hashes;
+		}
+		else if(request instanceof LeafRequest)
+		{
+			LeafRequest leafRequest = (LeafRequest) request;
+			
+			if(leafRequest.depth != Config.getInstance().getAntiEntropyDepth())
+			{
+				REQUESTS_REJECTED.increment();
+				return null;
+			}
+			
+			MerkleTree current = getTree(sender.peerId(), false);
+			HashMap<Number160, Number160> entries = new HashMap<Number160, Number160>();
+			
+			for(int leaf : leafRequest.leaves)
+				if(current.isLeaf(leaf) && leaf < current.size())
+					entries.putAll(current.getLeaf(leaf));
+			
+			return entries;
+		}
+		else if(request instanceof RecordRequest)
+		{
+			HashMap<Number160, String> records = new HashMap<Number160, String>();
+			List<Number160> keys = ((RecordRequest) request).keys;
+			
+			for(int i=0; i<keys.size() && i<RECORDS_PER_REQUEST; i++)
+			{
+				Data data = peer.storageLayer().get(storageKey(keys.get(i)));
+				
+				try
+				{
+					if(data != null)
+						records.put(keys.get(i), data.object().toString());
+				}
+				catch (ClassNotFoundException | IOException e)
+				{
+					LOGGER.warn("unreadable local record " + keys.get(i) + ": " + e.getMessage());
+				}
+			}
+			
+			return records;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * runs one anti-entropy round with a randomly chosen neighbour among the closest ones
+	 */
+	public void synchronize()
+	{
+		List<PeerAddress> neighbors = new ArrayList<PeerAddress>(peer.peerBean().peerMap().all());
+		
+		if(neighbors.isEmpty())
+			return;
+		
+		Number160 own = peer.peer().peerID();
+		neighbors.sort((a, b) -> a.peerId().xor(own).compareTo(b.peerId().xor(own)));
+		
+		PeerAddress partner = neighbors.get(random.nextInt(Math.min(neighbors.size(), Config.getInstance().getAntiEntropyPartners())));
+		
+		try
+		{
+			int stored = synchronize(partner, neighbors);
+			
+			if(stored > 0)
+			{
+				ROUNDS_REPAIRED.increment();
+				LOGGER.info("anti-entropy with " + partner.peerId() + " stored " + stored + " records");
+			}
+			else
+			{
+				ROUNDS_IN_SYNC.increment();
+			}
+		}
+		catch (DHTTimeoutException | IOException | ClassNotFoundException e)
+		{
+			ROUNDS_FAILED.increment();
+			LOGGER.info("anti-entropy with " + partner.peerId() + " failed: " + e.getMessage());
+		}
+	}
+	
+	private int synchronize(PeerAddress partner, List<PeerAddress> neighbors) throws DHTTimeoutException, IOException, ClassNotFoundException
+	{
+		int depth = Config.getInstance().getAntiEntropyDepth();
+		MerkleTree local = getTree(partner.peerId(), true);
+		
+		// descend level by level into the subtrees whose hashes differ
+		List<Integer> level = new ArrayList<Integer>();
+		List<Integer> leaves = new ArrayList<Integer>();
+		level.add(0);
+		
+		while(!level.isEmpty())
+		{
+			byte[][] hashes = (byte[][]) send(partner, new TreeRequest(depth, toArray(level)));
+			NODES_COMPARED.add(level.size());
+			
+			List<Integer> next = new ArrayList<Integer>();
+			
+			for(int i=0; i<level.size(); i++)
+			{
+				int node = level.get(i);
+				
+				if(local.matches(node, hashes[i]))
+					continue;
+				
+				if(local.isLeaf(node))
+				{
+					leaves.add(node);
+				}
+				else
+				{
+					next.add(2 * node + 1);
+					next.add(2 * node + 2);
+				}
+			}
+			
+			level = next;
+		}
+		
+		if(leaves.isEmpty())
+			return 0;
+		
+		// records the partner holds in a different version or that are missing locally
+		@SuppressWarnings("unchecked")
+		Map<Number160, Number160> remote = (Map<Number160, Number160>) send(partner, new LeafRequest(depth, toArray(leaves)));
+		ArrayList<Number160> wanted = new ArrayList<Number160>();
+		
+		for(Map.Entry<Number160, Number160> entry : remote.entrySet())
+		{
+			Number160 localHash = local.getDataHash(entry.getKey());
+			
+			if(entry.getValue().equals(localHash))
+				continue;
+			
+			if(localHash == null && !isReplica(entry.getKey(), peer.peer().peerID(), neighbors))
+				continue;
+			
+			wanted.add(entry.getKey());
+		}
+		
+		int stored = 0;
+		
+		for(int i=0; i<wanted.size(); i+=RECORDS_PER_REQUEST)
+		{
+			ArrayList<Number160> batch = new ArrayList<Number160>(wanted.subList(i, Math.min(i + RECORDS_PER_REQUEST, wanted.size())));
+			
+			@SuppressWarnings("unchecked")
+			Map<Number160, String> records = (Map<Number160, String>) send(partner, new RecordRequest(batch));
+			
+			for(Map.Entry<Number160, String> entry : records.entrySet())
+				if(store(entry.getKey(), entry.getValue()))
+					stored++;
+		}
+		
+		return stored;
+	}
+	
+	/**
+	 * @return true if the candidate is among the peers responsible for the key, as far as this peer knows its neighbourhood
+	 */
+	private boolean isReplica(Number160 locationKey, Number160 candidate, List<PeerAddress> neighbors)
+	{
+		Number160 distance = candidate.xor(locationKey);
+		int closer = peer.peer().peerID().xor(locationKey).compareTo(distance) < 0 ? 1 : 0;
+		
+		for(PeerAddress neighbor : neighbors)
+			if(neighbor.peerId().xor(locationKey).compareTo(distance) < 0)
+				closer++;
+		
+		return closer < REPLICATION_FACTOR;
+	}
+	
+	/**
+	 * stores a pulled record if its signature verifies, it belongs to the location key and it is
+	 * newer than the local copy
+	 *
+	 * @return true if the record was stored
+	 */
+	private boolean store(Number160 locationKey, String jwt) throws IOException
+	{
+		SocialRecord record;
+		
+		try
+		{
+			record = SocialRecord.createFromVerifiedJWT(jwt);
+		}
+		catch (SocialRecordIntegrityException e)
+		{
+			RECORDS_INVALID.increment();
+			return false;
+		}
+		
+		if(!Number160.createHash(record.getGlobalID()).equals(locationKey))
+		{
+			RECORDS_INVALID.increment();
+			return false;
+		}
+		
+		Data data = peer.storageLayer().get(storageKey(locationKey));
+		
+		if(data != null)
+		{
+			try
+			{
+				SocialRecord current = SocialRecord.createFromVerifiedJWT(data.object().toString());
+				
+				if(!XSDDateTime.parseXSDDateTime(record.getDatetime()).isAfter(XSDDateTime.parseXSDDateTime(current.getDatetime())))
+				{
+					RECORDS_SKIPPED.increment();
+					return false;
+				}
+			}
+			catch (SocialRecordIntegrityException | ClassNotFoundException e)
+			{
+				// the local copy is unusable, replace it
+			}
+		}
+		
+		peer.storageLayer().put(storageKey(locationKey), new Data(jwt), null, false, false, false);
+		RECORDS_STORED.increment();
+		
+		return true;
+	}
+	
+	private Object send(PeerAddress partner, Object request) throws DHTTimeoutException, IOException, ClassNotFoundException
+	{
+		long timeout = Config.getInstance().getAntiEntropyTimeout();
+		FutureDirect futureDirect = peer.peer().sendDirect(partner).object(request).start();
+		
+		if(!futureDirect.awaitUninterruptibly(timeout))
+		{
+			futureDirect.cancel();
+			throw new DHTTimeoutException("anti-entropy request timed out after " + timeout + " ms");
+		}
+		
+		if(!futureDirect.isSuccess() || futureDirect.object() == null)
+			throw new IOException("anti-entropy request failed: " + futureDirect.failedReason());
+		
+		return futureDirect.object();
+	}
+	
+	private static Number640 storageKey(Number160 locationKey)
+	{
+		return new Number640(locationKey, Number160.ZERO, Number160.ZERO, Number160.ZERO);
+	}
+	
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		
+		for(int i=0; i<array.length; i++)
+			array[i] = list.get(i);
+		
+		return array;
+	}
+}
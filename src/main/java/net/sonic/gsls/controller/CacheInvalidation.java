@@ -0,0 +1,41 @@
+package net.sonic.gsls.controller;
+
+import java.io.Serializable;
+
+/**
+ * Message sent directly to the GSLS nodes responsible for a SocialRecord and to some random
+ * neighbours after the record was written. Receivers drop cached copies of the record that do not
+ * match the new version.
+ *
+ * Invalidations are not authenticated. A forged message can only make a node drop a cache entry
+ * and fetch the record again, it cannot change what the node serves.
+ * 
+ * @version 1
+ */
+public class CacheInvalidation implements Serializable
+{
+	private static final long serialVersionUID = 3166427911720467385L;
+	
+	private final String globalID;
+	private final String digest;
+	
+	/**
+	 * @param globalID
+	 * @param digest DHT digest of the new version of the record
+	 */
+	public CacheInvalidation(String globalID, String digest)
+	{
+		this.globalID = globalID;
+		this.digest = digest;
+	}
+	
+	public String getGlobalID()
+	{
+		return globalID;
+	}
+	
+	public String getDigest()
+	{
+		return digest;
+	}
+}
@@ -1,27 +1,57 @@
 package net.sonic.gsls.controller;
 
 import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.model.SocialRecord;
+import net.sonic.gsls.model.SocialRecordIntegrityException;
+import net.sonic.gsls.util.CircuitBreaker;
+import net.sonic.gsls.util.ConcurrencyLimiter;
+import net.sonic.gsls.util.HeavyHitters;
+import net.sonic.gsls.util.XSDDateTime;
 import net.tomp2p.connection.Bindings;
+import net.tomp2p.dht.FutureDigest;
 import net.tomp2p.dht.FutureGet;
 import net.tomp2p.dht.FuturePut;
 import net.tomp2p.dht.PeerBuilderDHT;
 import net.tomp2p.dht.PeerDHT;
+import net.tomp2p.futures.BaseFutureAdapter;
 import net.tomp2p.futures.FutureBootstrap;
 import net.tomp2p.futures.FutureDiscover;
 import net.tomp2p.p2p.PeerBuilder;
 import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
 import net.tomp2p.peers.PeerAddress;
 import net.tomp2p.replication.IndirectReplication;
 import net.tomp2p.storage.Data;
 
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * DHT Manager class for accessing the DHT
@@ -33,16 +63,124 @@ import java.util.Random;
 @Repository
 public class DHTManager
 {
+	private static final Logger LOGGER = LoggerFactory.getLogger(DHTManager.class);
+	
 	@Autowired
 	private static DHTManager	instance	= null;
 	
-	private PeerDHT peer;
+	private volatile PeerDHT peer;
+	private IndirectReplication replication;
+	private AntiEntropy antiEntropy;
+	
+	// starting, joining, joined or failed. the health monitor takes over reconnecting once the initial join completed
+	private volatile String overlayState = "starting";
+	
+	// true if the connect node is this host, i.e. this node is the first one of the overlay
+	private volatile boolean seed = false;
+	
+	// bounds the number of concurrent gets and puts, adapted to the observed DHT latency
+	private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(
+			Config.getInstance().getDhtConcurrencyLimitInitial(),
+			Config.getInstance().getDhtConcurrencyLimitMin(),
+			Config.getInstance().getDhtConcurrencyLimitMax(),
+			Config.getInstance().getDhtConcurrencyLatencyTolerance(),
+			Config.getInstance().getDhtConcurrencyBackoffRatio());
+	
+	// opens on sustained failure, so requests fail fast while the overlay is unreachable
+	private final CircuitBreaker circuit = new CircuitBreaker(Config.getInstance().getCircuitFailureThreshold());
+	
+	private static final Counter LOCAL_READS_HIT = Metrics.getInstance().counter("gsls_dht_local_reads_total", "gets checked against the local storage", "result", "hit");
+	private static final Counter LOCAL_READS_MISS = Metrics.getInstance().counter("gsls_dht_local_reads_total", "gets checked against the local storage", "result", "miss");
+	private static final Counter LOCAL_READS_DIVERGED = Metrics.getInstance().counter("gsls_dht_local_reads_total", "gets checked against the local storage", "result", "diverged");
+	private static final Counter REVALIDATIONS_UNCHANGED = Metrics.getInstance().counter("gsls_dht_local_revalidations_total", "background checks of local copies against the network", "result", "unchanged");
+	private static final Counter REVALIDATIONS_CHANGED = Metrics.getInstance().counter("gsls_dht_local_revalidations_total", "background checks of local copies against the network", "result", "changed");
+	private static final Counter REVALIDATIONS_FAILED = Metrics.getInstance().counter("gsls_dht_local_revalidations_total", "background checks of local copies against the network", "result", "failed");
+	private static final Counter REPLICA_CONFLICTS = Metrics.getInstance().counter("gsls_dht_replica_conflicts_total", "gets whose replicas returned different or missing versions");
+	private static final Counter INVALID_REPLICAS = Metrics.getInstance().counter("gsls_dht_invalid_replicas_total", "replica versions that failed verification");
+	private static final Counter READ_REPAIRS_SUCCEEDED = Metrics.getInstance().counter("gsls_dht_read_repairs_total", "newest versions written back to the replicas", "result", "success");
+	private static final Counter READ_REPAIRS_FAILED = Metrics.getInstance().counter("gsls_dht_read_repairs_total", "newest versions written back to the replicas", "result", "failure");
+	private static final Counter READ_REPAIRS_SKIPPED = Metrics.getInstance().counter("gsls_dht_read_repairs_total", "newest versions written back to the replicas", "result", "skipped");
+	private static final Counter READ_REPAIRS_SUPERSEDED = Metrics.getInstance().counter("gsls_dht_read_repairs_total", "newest versions written back to the replicas", "result", "superseded");
+	private static final Counter INVALIDATIONS_SENT = Metrics.getInstance().counter("gsls_cache_invalidations_total", "cache invalidation messages", "direction", "sent");
+	private static final Counter INVALIDATIONS_RECEIVED = Metrics.getInstance().counter("gsls_cache_invalidations_total", "cache invalidation messages", "direction", "received");
+	private static final Counter HOT_KEY_REPLICA_MISSES = Metrics.getInstance().counter("gsls_dht_hot_key_replica_misses_total", "gets of hot keys whose extra replica was missing");
+	private static final Counter HOT_KEY_REPLICAS_WRITTEN = Metrics.getInstance().counter("gsls_dht_hot_key_replica_writes_total", "extra replicas of hot keys written or refreshed", "result", "success");
+	private static final Counter HOT_KEY_REPLICAS_FAILED = Metrics.getInstance().counter("gsls_dht_hot_key_replica_writes_total", "extra replicas of hot keys written or refreshed", "result", "failure");
+	private static final Counter HOT_KEY_REPLICAS_REMOVED = Metrics.getInstance().counter("gsls_dht_hot_key_replica_removals_total", "extra replicas of hot keys removed after demand dropped");
+	
+	// time of the last background revalidation per key, and keys whose local copy differs from the network
+	private final Map<String, Long> revalidated = new LinkedHashMap<String, Long>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+		{
+			return size() > Config.getInstance().getRecordCacheSize();
+		}
+	};
+	private final Set<String> diverged = ConcurrentHashMap.newKeySet();
+	
+	// keys with a read repair in progress
+	private final Set<String> repairing = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger repairsInFlight = new AtomicInteger();
+	
+	// most requested keys and the number of extra replicas held for each hot key
+	private final HeavyHitters hotKeys = new HeavyHitters(Config.getInstance().getHotKeyCapacity());
+	private final Map<String, Integer> hotReplicas = new ConcurrentHashMap<String, Integer>();
+	
+	// System.nanoTime() of the last PUT of a key seen since the current rebalancing round started,
+	// guarded by hotReplicas. Replicas copied from a version read before that PUT are not read from
+	private final Map<String, Long> lastPuts = new HashMap<String, Long>();
+	private final Random random = new Random();
+	
+	// revalidations are best effort and dropped if the queue is full
+	private final ThreadPoolExecutor revalidator = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(64), runnable ->
+	{
+		Thread thread = new Thread(runnable, "dht-revalidate");
+		thread.setDaemon(true);
+		return thread;
+	}, new ThreadPoolExecutor.DiscardPolicy());
+	
+	// verification of outdated replica versions and read repairs are best effort and dropped if the queue is full
+	private final ThreadPoolExecutor repairer = new ThreadPoolExecutor(1, 2, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(64), runnable ->
+	{
+		Thread thread = new Thread(runnable, "dht-repair");
+		thread.setDaemon(true);
+		return thread;
+	}, new ThreadPoolExecutor.DiscardPolicy());
+	
+	// gets started ahead of the request step that needs them. There is no queue: with all threads busy,
+	// getAsync() runs the get on the caller's thread and only returns once it completed. The request then
+	// loses the overlap with verification but still finishes, and the pool never grows past the DHT
+	// concurrency limit, which bounds the gets in flight anyway
+	private final ThreadPoolExecutor fetcher = new ThreadPoolExecutor(0, Config.getInstance().getDhtConcurrencyLimitMax(), 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), runnable ->
+	{
+		Thread thread = new Thread(runnable, "dht-fetch");
+		thread.setDaemon(true);
+		return thread;
+	}, new ThreadPoolExecutor.CallerRunsPolicy());
 	
 	private DHTManager()
 	{
 	
 	}
 	
+	/**
+	 * wraps an already started peer, e.g. for running several peers in one JVM. The instance is
+	 * not registered as the singleton.
+	 * 
+	 * @param peer
+	 */
+	public DHTManager(PeerDHT peer)
+	{
+		this.peer = peer;
+		this.overlayState = "joined";
+		this.replication = new IndirectReplication(peer).start();
+		this.antiEntropy = new AntiEntropy(peer);
+		this.peer.peer().objectDataReply(this::reply);
+	}
+	
 	public static DHTManager getInstance()
 	{
 		if(instance == null)
@@ -55,9 +193,48 @@ public class DHTManager
 		Random rand = new Random();
 		Bindings bind = new Bindings();
 		bind.addInterface(Config.getInstance().getNetworkInterface());
-		peer = new PeerBuilderDHT(new PeerBuilder(new Number160(rand)).ports(Config.getInstance().getPortDHT()).start()).start();
 		
-		this.connectToConnectNode();
+		PeerDHT peer;
+		
+		try
+		{
+			peer = new PeerBuilderDHT(new PeerBuilder(new Number160(rand)).ports(Config.getInstance().getPortDHT()).start()).start();
+		}
+		catch (IOException e)
+		{
+			overlayState = "failed";
+			throw e;
+		}
+		
+		// replication runs for the lifetime of the peer. it must not be restarted on reconnect
+		replication = new IndirectReplication(peer).start();
+		
+		// invalidations and anti-entropy requests from other GSLS nodes
+		antiEntropy = new AntiEntropy(peer);
+		peer.peer().objectDataReply(this::reply);
+		
+		seed = isLocalAddress(Config.getInstance().getConnectNode());
+		
+		// requests are served while the peer joins. operations are rejected as unavailable until the peer is set
+		overlayState = "joining";
+		this.peer = peer;
+		
+		Metrics.getInstance().gauge("gsls_dht_neighbors", "number of peers in the routing table", () -> getAllNeighbors().size());
+		Metrics.getInstance().gauge("gsls_dht_routing_latency_seconds", "smoothed DHT routing latency", () -> OverlayHealthMonitor.getInstance().getRoutingLatency() / 1000);
+		Metrics.getInstance().gauge("gsls_overlay_healthy", "1 if the overlay passed the last health check", () -> OverlayHealthMonitor.getInstance().isHealthy() ? 1 : 0);
+		Metrics.getInstance().gauge("gsls_dht_concurrency_limit", "current limit for concurrent DHT operations", () -> limiter.getLimit());
+		Metrics.getInstance().gauge("gsls_dht_in_flight", "DHT operations in progress", () -> limiter.getInFlight());
+		Metrics.getInstance().gauge("gsls_dht_circuit_open", "1 while DHT operations fail fast because the overlay is unreachable", () -> circuit.isOpen() ? 1 : 0);
+		
+		try
+		{
+			this.connectToConnectNode();
+		}
+		finally
+		{
+			// without neighbours, the health monitor keeps reconnecting
+			overlayState = "joined";
+		}
 		
 		/*new IndirectReplication(peer).start();
 		
@@ -70,15 +247,60 @@ public class DHTManager
 		return this;
 	}
 	
+	private static boolean isLocalAddress(String host)
+	{
+		if(host == null || host.isEmpty())
+			return true;
+		
+		try
+		{
+			InetAddress address = InetAddress.getByName(host);
+			
+			return address.isLoopbackAddress() || address.isAnyLocalAddress() || NetworkInterface.getByInetAddress(address) != null;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * @return true if this node is the connect node of the overlay
+	 */
+	public boolean isSeed()
+	{
+		return seed;
+	}
+	
 	public DHTManager connectToConnectNode() throws IOException
 	{
-		new IndirectReplication(peer).start();
+		return this.connectTo(Inet4Address.getByName(Config.getInstance().getConnectNode()), Config.getInstance().getPortDHT());
+	}
+	
+	/**
+	 * discovers and bootstraps to the given peer. Each step is cancelled if it does not complete within the connect timeout
+	 * 
+	 * @param address
+	 * @param port
+	 * @return DHTManager
+	 */
+	public DHTManager connectTo(InetAddress address, int port)
+	{
+		long timeout = Config.getInstance().getDhtConnectTimeout();
 		
-		InetAddress address = Inet4Address.getByName(Config.getInstance().getConnectNode());
-		FutureDiscover futureDiscover = peer.peer().discover().inetAddress(address).ports(Config.getInstance().getPortDHT()).start();
-		futureDiscover.awaitUninterruptibly();
-		FutureBootstrap futureBootstrap = peer.peer().bootstrap().inetAddress(address).ports(Config.getInstance().getPortDHT()).start();
-		futureBootstrap.awaitUninterruptibly();
+		FutureDiscover futureDiscover = peer.peer().discover().inetAddress(address).ports(port).start();
+		if(!futureDiscover.awaitUninterruptibly(timeout))
+		{
+			futureDiscover.cancel();
+			LOGGER.warn("discovery of " + address + ":" + port + " timed out after " + timeout + " ms");
+		}
+		
+		FutureBootstrap futureBootstrap = peer.peer().bootstrap().inetAddress(address).ports(port).start();
+		if(!futureBootstrap.awaitUninterruptibly(timeout))
+		{
+			futureBootstrap.cancel();
+			LOGGER.warn("bootstrap to " + address + ":" + port + " timed out after " + timeout + " ms");
+		}
 		
 		return this;
 	}
@@ -88,24 +310,388 @@ public class DHTManager
 	 *
 	 * @param key
 	 * @return the social record
-	 * @throws ClassNotFoundException
-	 * @throws IOException
 	 * @throws GIDNotFoundException 
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the get timeout expired
+	 */
+	public String get(String key) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		return get(key, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getDhtGetTimeout()));
+	}
+	
+	/**
+	 * Retrieves the social record from the DHT. A copy held in the local storage is returned
+	 * without network lookup, depending on the local read policy
+	 *
+	 * @param key
+	 * @param deadline System.nanoTime() by which the get must complete. Limited to the get timeout
+	 * @return the social record
+	 * @throws GIDNotFoundException 
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the deadline expired
+	 */
+	public String get(String key, long deadline) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		String local = getLocal(key);
+		
+		if(local != null)
+			return local;
+		
+		if(!Config.getInstance().getHotKeyEnabled())
+			return getFromNetwork(key, 0, deadline);
+		
+		hotKeys.offer(key);
+		
+		// spread the reads of hot keys across the primary and the extra replicas
+		Integer replicas = hotReplicas.get(key);
+		int replica = replicas == null ? 0 : random.nextInt(replicas + 1);
+		
+		if(replica > 0)
+		{
+			try
+			{
+				return getFromNetwork(key, replica, deadline);
+			}
+			catch (GIDNotFoundException e)
+			{
+				// the replica expired or was not written yet
+				HOT_KEY_REPLICA_MISSES.increment();
+			}
+		}
+		
+		return getFromNetwork(key, 0, deadline);
+	}
+	
+	/**
+	 * Retrieves the social record from the DHT. An authoritative get skips the local copy and the
+	 * extra replicas of hot keys and selects the newest valid version held by the responsible
+	 * peers, regardless of the get mode. Used where a stale version must not be accepted, e.g.
+	 * to check the ownership of a record before it is overwritten
+	 *
+	 * @param key
+	 * @param deadline System.nanoTime() by which the get must complete. Limited to the get timeout
+	 * @param authoritative
+	 * @return the social record
+	 * @throws GIDNotFoundException 
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the deadline expired
+	 */
+	public String get(String key, long deadline, boolean authoritative) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		if(!authoritative)
+			return get(key, deadline);
+		
+		return getFromNetwork(key, 0, true, deadline);
+	}
+	
+	/**
+	 * starts retrieving the social record in the background, so the caller can do other work
+	 * in the meantime. Behaves like get(key, deadline, authoritative)
+	 *
+	 * @param key
+	 * @param deadline System.nanoTime() by which the get must complete. Limited to the get timeout
+	 * @param authoritative
+	 * @return the social record. Future.get() throws an ExecutionException with the exception thrown by get(key, deadline, authoritative)
+	 */
+	public Future<String> getAsync(String key, long deadline, boolean authoritative)
+	{
+		return fetcher.submit(() -> get(key, deadline, authoritative));
+	}
+	
+	/**
+	 * returns the copy of the record in the local storage, if the local read policy allows it.
+	 * With the policy revalidate, the copy is compared to the network version in the background
+	 * at most once per revalidation interval. Keys whose local copy differs from the network
+	 * version are read from the network until the replicas agree again
+	 *
+	 * @param key
+	 * @return the record, or null if it has to be read from the network
 	 */
-	public String get(String key) throws GIDNotFoundException
+	private String getLocal(String key)
+	{
+		String policy = Config.getInstance().getLocalReadPolicy();
+		
+		if(policy.equals("off") || peer == null)
+			return null;
+		
+		long start = System.nanoTime();
+		Data data = peer.storageLayer().get(storageKey(key));
+		
+		if(data == null)
+		{
+			LOCAL_READS_MISS.increment();
+			return null;
+		}
+		
+		if(diverged.contains(key))
+		{
+			LOCAL_READS_DIVERGED.increment();
+			return null;
+		}
+		
+		String value;
+		
+		try
+		{
+			value = data.object().toString();
+		}
+		catch (ClassNotFoundException | IOException e)
+		{
+			LOCAL_READS_MISS.increment();
+			return null;
+		}
+		
+		LOCAL_READS_HIT.increment();
+		Metrics.getInstance().histogram("gsls_dht_get_duration_seconds", "duration of DHT get operations", "outcome", "local").observeSince(start);
+		
+		if(policy.equals("revalidate"))
+			revalidate(key, value);
+		
+		return value;
+	}
+	
+	private void revalidate(String key, String localValue)
 	{
+		long now = System.currentTimeMillis();
+		
+		synchronized(revalidated)
+		{
+			Long last = revalidated.get(key);
+			
+			if(last != null && now - last < Config.getInstance().getLocalRevalidateInterval())
+				return;
+			
+			revalidated.put(key, now);
+		}
+		
+		revalidator.execute(() ->
+		{
+			try
+			{
+				String networkValue = getFromNetwork(key, 0, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getDhtGetTimeout()));
+				
+				if(networkValue.equals(localValue))
+				{
+					diverged.remove(key);
+					REVALIDATIONS_UNCHANGED.increment();
+				}
+				else
+				{
+					diverged.add(key);
+					REVALIDATIONS_CHANGED.increment();
+				}
+			}
+			catch (GIDNotFoundException | DHTUnavailableException | DHTTimeoutException e)
+			{
+				// keep serving the local copy, try again after the next interval
+				REVALIDATIONS_FAILED.increment();
+			}
+		});
+	}
+	
+	/**
+	 * @param value
+	 * @return the digest the DHT reports for the given record, the hash of its serialized Data
+	 * @throws IOException
+	 */
+	public static Number160 digestOf(String value) throws IOException
+	{
+		return new Data(value).hash();
+	}
+	
+	/**
+	 * tells the GSLS nodes that most likely hold an outdated copy that a record was written, so
+	 * they drop it: the peers responsible for the key and for its extra replicas, then randomly
+	 * chosen neighbours up to the fanout. Sent without waiting for the replies.
+	 *
+	 * Invalidation is best effort. Other nodes that cached the record are not known to the writer
+	 * and messages may be lost, so the record cache TTL remains the bound on how long an outdated
+	 * version is served
+	 *
+	 * @param hotReplicas number of extra replicas the key had before the put, null if it had none
+	 */
+	private void broadcastInvalidation(String key, String value, Integer hotReplicas)
+	{
+		CacheInvalidation invalidation;
+		
+		try
+		{
+			invalidation = new CacheInvalidation(key, digestOf(value).toString());
+		}
+		catch (IOException e)
+		{
+			return;
+		}
+		
+		List<PeerAddress> neighbors = new ArrayList<PeerAddress>(getAllNeighbors());
+		Set<PeerAddress> targets = new LinkedHashSet<PeerAddress>();
+		
+		for(int replica=0; replica<=(hotReplicas == null ? 0 : hotReplicas); replica++)
+			targets.addAll(closest(neighbors, locationKey(key, replica), AntiEntropy.REPLICATION_FACTOR));
+		
+		Collections.shuffle(neighbors, random);
+		
+		for(int i=0; i<neighbors.size() && targets.size()<Config.getInstance().getInvalidationFanout(); i++)
+			targets.add(neighbors.get(i));
+		
+		for(PeerAddress target : targets)
+			peer.peer().sendDirect(target).object(invalidation).start();
+		
+		INVALIDATIONS_SENT.add(targets.size());
+	}
+	
+	/**
+	 * @return the count neighbours closest to the location key, as far as this peer knows its neighbourhood
+	 */
+	private static List<PeerAddress> closest(List<PeerAddress> neighbors, Number160 locationKey, int count)
+	{
+		List<PeerAddress> sorted = new ArrayList<PeerAddress>(neighbors);
+		sorted.sort((a, b) -> a.peerId().xor(locationKey).compareTo(b.peerId().xor(locationKey)));
+		
+		return sorted.subList(0, Math.min(count, sorted.size()));
+	}
+	
+	private Object reply(PeerAddress sender, Object request)
+	{
+		if(!(request instanceof CacheInvalidation))
+			return Config.getInstance().getAntiEntropyEnabled() ? antiEntropy.reply(sender, request) : null;
+		
+		CacheInvalidation invalidation = (CacheInvalidation) request;
+		INVALIDATIONS_RECEIVED.increment();
+		
+		RecordCache.getInstance().invalidate(invalidation.getGlobalID(), invalidation.getDigest());
+		
+		// the extra replicas still hold the old version. read the primary until they are rewritten
+		putSeen(invalidation.getGlobalID());
+		
+		// the local copy has to be checked against the network before it is served again
+		Data data = peer.storageLayer().get(storageKey(invalidation.getGlobalID()));
+		
+		if(data != null && !data.hash().toString().equals(invalidation.getDigest()))
+			diverged.add(invalidation.getGlobalID());
+		
+		synchronized(revalidated)
+		{
+			revalidated.remove(invalidation.getGlobalID());
+		}
+		
+		return Boolean.TRUE;
+	}
+	
+	/**
+	 * @param key
+	 * @param replica 0 for the responsible peers of the key, 1 and above for the extra replicas of a hot key
+	 * @return the location key in the DHT. Each replica is stored on a different set of peers
+	 */
+	private static Number160 locationKey(String key, int replica)
+	{
+		return replica == 0 ? Number160.createHash(key) : Number160.createHash(key + "#" + replica);
+	}
+	
+	/**
+	 * @param key
+	 * @return the key under which a record put with the default domain, content and version keys is stored
+	 */
+	private static Number640 storageKey(String key)
+	{
+		return new Number640(Number160.createHash(key), Number160.ZERO, Number160.ZERO, Number160.ZERO);
+	}
+	
+	private void syncLocalState(String key, String value)
+	{
+		Data data = peer.storageLayer().get(storageKey(key));
+		
+		try
+		{
+			if(data != null && !value.equals(data.object().toString()))
+			{
+				diverged.add(key);
+				return;
+			}
+		}
+		catch (ClassNotFoundException | IOException e)
+		{
+			diverged.add(key);
+			return;
+		}
+		
+		diverged.remove(key);
+	}
+	
+	/**
+	 * @param key
+	 * @param replica 0 for the responsible peers of the key, 1 and above for the extra replicas of a hot key
+	 * @param deadline
+	 */
+	private String getFromNetwork(String key, int replica, long deadline) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		return getFromNetwork(key, replica, Config.getInstance().getDhtGetMode().equals("newest"), deadline);
+	}
+	
+	/**
+	 * @param key
+	 * @param replica 0 for the responsible peers of the key, 1 and above for the extra replicas of a hot key
+	 * @param newest true to compare the versions returned by the responsible peers and select the newest one
+	 * @param deadline
+	 */
+	private String getFromNetwork(String key, int replica, boolean newest, long deadline) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		long timeout = remaining("get", deadline, Config.getInstance().getDhtGetTimeout());
+		
+		checkCircuit("get");
+		acquire("get");
+		
+		long start = System.nanoTime();
+		String outcome = "error";
+		boolean dropped = false;
+		boolean cancelled = false;
+		
 		try
 		{
-			FutureGet futureGet = peer.get(Number160.createHash(key)).start();
-			futureGet.awaitUninterruptibly();
+			FutureGet futureGet = peer.get(locationKey(key, replica)).start();
+			boolean completed;
+			
+			try
+			{
+				completed = futureGet.await(timeout);
+			}
+			catch (InterruptedException e)
+			{
+				// the caller no longer needs the result, e.g. a PUT rejected while its fetch was running
+				futureGet.cancel();
+				outcome = "cancelled";
+				cancelled = true;
+				Thread.currentThread().interrupt();
+				throw new DHTTimeoutException("DHT get cancelled");
+			}
+			
+			if(!completed)
+			{
+				futureGet.cancel();
+				
+				outcome = "timeout";
+				dropped = true;
+				OverlayHealthMonitor.getInstance().recordGet((System.nanoTime() - start) / 1000000, false);
+				recordOutcome(false);
+				throw new DHTTimeoutException("DHT get timed out after " + timeout + " ms");
+			}
+			
+			// a get counts as failed for the overlay health only if no peer answered at all
+			boolean routed = futureGet.rawData() != null && !futureGet.rawData().isEmpty();
+			OverlayHealthMonitor.getInstance().recordGet((System.nanoTime() - start) / 1000000, routed);
+			recordOutcome(routed);
 			
 			// TODO: use non-blocking?
 			if(futureGet.isSuccess() && futureGet.data() != null)
 			{
-				return futureGet.data().object().toString();
+				// extra replicas are rewritten from the primary every window, they are not repaired
+				String value = replica == 0 && newest ? selectNewest(key, futureGet) : futureGet.data().object().toString();
+				outcome = "found";
+				return value;
 			}
 			else
 			{
+				outcome = "not_found";
 				throw new GIDNotFoundException("GID not found");
 			}
 			
@@ -115,6 +701,261 @@ public class DHTManager
 		{
 			throw new GIDNotFoundException("GID not found");
 		}
+		finally
+		{
+			// a cancelled get says nothing about the congestion of the overlay
+			if(cancelled)
+				limiter.ignore();
+			else
+				limiter.release("get", System.nanoTime() - start, dropped);
+			Metrics.getInstance().histogram("gsls_dht_get_duration_seconds", "duration of DHT get operations", "outcome", outcome).observeSince(start);
+		}
+	}
+	
+	/**
+	 * checks whether the DHT still holds the given version of a record. Only the digest of the
+	 * record is requested from the responsible peers, not the record itself
+	 *
+	 * @param key
+	 * @param value the known version of the record
+	 * @param deadline System.nanoTime() by which the check must complete. Limited to the get timeout
+	 * @return true if the peers hold exactly the given version
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the deadline expired
+	 */
+	public boolean isCurrent(String key, String value, long deadline) throws DHTUnavailableException, DHTTimeoutException
+	{
+		long timeout = remaining("digest", deadline, Config.getInstance().getDhtGetTimeout());
+		
+		checkCircuit("digest");
+		acquire("digest");
+		
+		long start = System.nanoTime();
+		boolean completed = false;
+		String outcome = "error";
+		
+		try
+		{
+			FutureDigest futureDigest = peer.digest(Number160.createHash(key)).start();
+			completed = futureDigest.awaitUninterruptibly(timeout);
+			
+			if(!completed)
+			{
+				futureDigest.cancel();
+				outcome = "timeout";
+				recordOutcome(false);
+				throw new DHTTimeoutException("DHT digest timed out after " + timeout + " ms");
+			}
+			
+			recordOutcome(futureDigest.rawDigest() != null && !futureDigest.rawDigest().isEmpty());
+			
+			if(!futureDigest.isSuccess() || futureDigest.digest() == null)
+			{
+				outcome = "not_found";
+				return false;
+			}
+			
+			// the peers report the hash of the stored data, which is the hash of the serialized record
+			Number160 digest = futureDigest.digest().keyDigest().get(storageKey(key));
+			boolean current = digest != null && digest.equals(digestOf(value));
+			
+			outcome = current ? "unchanged" : "changed";
+			return current;
+		}
+		catch (IOException e)
+		{
+			return false;
+		}
+		finally
+		{
+			limiter.release("digest", System.nanoTime() - start, !completed);
+			Metrics.getInstance().histogram("gsls_dht_digest_duration_seconds", "duration of DHT digest operations", "outcome", outcome).observeSince(start);
+		}
+	}
+	
+	/**
+	 * picks the newest valid version among the replica answers. If the replicas disagree or some
+	 * of them are missing the record, the versions are ordered by their stored datetime without
+	 * verifying them and only the newest one is verified on the request thread. The outdated
+	 * versions are verified and the newest one is written back in the background
+	 */
+	private String selectNewest(String key, FutureGet futureGet) throws ClassNotFoundException, IOException
+	{
+		String first = futureGet.data().object().toString();
+		
+		if(futureGet.rawData() == null)
+			return first;
+		
+		Number640 storageKey = storageKey(key);
+		Set<String> versions = new HashSet<String>();
+		boolean missing = false;
+		
+		for(Map<Number640, Data> answer : futureGet.rawData().values())
+		{
+			Data data = answer != null ? answer.get(storageKey) : null;
+			
+			if(data == null)
+				missing = true;
+			else
+				versions.add(data.object().toString());
+		}
+		
+		if(versions.size() <= 1 && !missing)
+			return first;
+		
+		REPLICA_CONFLICTS.increment();
+		
+		Map<String, DateTime> datetimes = new HashMap<String, DateTime>();
+		
+		for(String version : versions)
+		{
+			try
+			{
+				datetimes.put(version, XSDDateTime.parseXSDDateTime(SocialRecord.createFromUnverifiedJWT(version).getDatetime()));
+			}
+			catch (SocialRecordIntegrityException | IllegalArgumentException e)
+			{
+				INVALID_REPLICAS.increment();
+			}
+		}
+		
+		List<String> candidates = new ArrayList<String>(datetimes.keySet());
+		candidates.sort((a, b) -> datetimes.get(b).compareTo(datetimes.get(a)));
+		
+		// a version that fails verification is skipped, so a forged newer datetime cannot hide the valid version
+		for(int i=0; i<candidates.size(); i++)
+		{
+			String newest = candidates.get(i);
+			
+			try
+			{
+				SocialRecord.createFromVerifiedJWT(newest);
+			}
+			catch (SocialRecordIntegrityException e)
+			{
+				INVALID_REPLICAS.increment();
+				continue;
+			}
+			
+			List<String> outdated = new ArrayList<String>(candidates.subList(i + 1, candidates.size()));
+			
+			repairer.execute(() ->
+			{
+				for(String version : outdated)
+				{
+					try
+					{
+						SocialRecord.createFromVerifiedJWT(version);
+					}
+					catch (SocialRecordIntegrityException e)
+					{
+						INVALID_REPLICAS.increment();
+					}
+				}
+				
+				repair(key, newest, datetimes.get(newest));
+			});
+			
+			return newest;
+		}
+		
+		return first;
+	}
+	
+	/**
+	 * writes the newest version back to the responsible peers without waiting for the result.
+	 * The replicas are read again right before the write and the repair is dropped if one of them
+	 * already holds a newer version, e.g. written by a PUT after the original read
+	 */
+	private void repair(String key, String value, DateTime datetime)
+	{
+		if(!repairing.add(key))
+			return;
+		
+		if(repairsInFlight.incrementAndGet() > Config.getInstance().getReadRepairMaxInFlight())
+		{
+			finishRepair(key, READ_REPAIRS_SKIPPED);
+			return;
+		}
+		
+		peer.get(Number160.createHash(key)).start().addListener(new BaseFutureAdapter<FutureGet>()
+		{
+			@Override
+			public void operationComplete(FutureGet future) throws Exception
+			{
+				if(!future.isSuccess())
+				{
+					finishRepair(key, READ_REPAIRS_FAILED);
+					return;
+				}
+				
+				if(hasNewerVersion(key, future, datetime))
+				{
+					finishRepair(key, READ_REPAIRS_SUPERSEDED);
+					return;
+				}
+				
+				try
+				{
+					peer.put(Number160.createHash(key)).data(new Data(value)).start().addListener(new BaseFutureAdapter<FuturePut>()
+					{
+						@Override
+						public void operationComplete(FuturePut futurePut) throws Exception
+						{
+							finishRepair(key, futurePut.isSuccess() ? READ_REPAIRS_SUCCEEDED : READ_REPAIRS_FAILED);
+						}
+					});
+				}
+				catch (IOException e)
+				{
+					finishRepair(key, READ_REPAIRS_FAILED);
+				}
+			}
+		});
+	}
+	
+	private void finishRepair(String key, Counter result)
+	{
+		repairsInFlight.decrementAndGet();
+		repairing.remove(key);
+		result.increment();
+	}
+	
+	/**
+	 * @return true if one of the replica answers holds a valid version newer than the given datetime
+	 */
+	private boolean hasNewerVersion(String key, FutureGet futureGet, DateTime datetime)
+	{
+		if(futureGet.rawData() == null)
+			return false;
+		
+		Number640 storageKey = storageKey(key);
+		
+		for(Map<Number640, Data> answer : futureGet.rawData().values())
+		{
+			Data data = answer != null ? answer.get(storageKey) : null;
+			
+			if(data == null)
+				continue;
+			
+			try
+			{
+				// only versions that claim to be newer have to be verified
+				String version = data.object().toString();
+				
+				if(XSDDateTime.parseXSDDateTime(SocialRecord.createFromUnverifiedJWT(version).getDatetime()).isAfter(datetime))
+				{
+					SocialRecord.createFromVerifiedJWT(version);
+					return true;
+				}
+			}
+			catch (SocialRecordIntegrityException | IllegalArgumentException | ClassNotFoundException | IOException e)
+			{
+				// invalid versions never supersede the repair
+			}
+		}
+		
+		return false;
 	}
 	
 	/**
@@ -125,19 +966,308 @@ public class DHTManager
 	 * @param value
 	 *            : the social record
 	 * @throws IOException
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the put timeout expired
+	 */
+	public void put(String key, String value) throws IOException, DHTUnavailableException, DHTTimeoutException
+	{
+		put(key, value, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getDhtPutTimeout()));
+	}
+	
+	/**
+	 * Stores the social record in the DHT.
+	 *
+	 * @param key
+	 *            : the GID
+	 * @param value
+	 *            : the social record
+	 * @param deadline
+	 *            : System.nanoTime() by which the put must complete. Limited to the put timeout
+	 * @throws IOException if no peer confirmed the put
+	 * @throws DHTUnavailableException if the concurrency limit is reached
+	 * @throws DHTTimeoutException if the deadline expired
 	 */
-	public void put(String key, String value) throws IOException
+	public void put(String key, String value, long deadline) throws IOException, DHTUnavailableException, DHTTimeoutException
 	{
-		FuturePut futurePut = peer.put(Number160.createHash(key)).data(new Data(value)).start();
-		futurePut.awaitUninterruptibly();
+		long timeout = remaining("put", deadline, Config.getInstance().getDhtPutTimeout());
+		
+		checkCircuit("put");
+		acquire("put");
 		
-		if(futurePut.isSuccess())
+		long start = System.nanoTime();
+		FuturePut futurePut;
+		boolean completed = false;
+		
+		try
 		{
+			futurePut = peer.put(Number160.createHash(key)).data(new Data(value)).start();
+			completed = futurePut.awaitUninterruptibly(timeout);
 			
+			if(!completed)
+				futurePut.cancel();
+		}
+		finally
+		{
+			limiter.release("put", System.nanoTime() - start, !completed);
 		}
+		
+		OverlayHealthMonitor.getInstance().recordPut((System.nanoTime() - start) / 1000000);
+		recordOutcome(completed && futurePut.isSuccess());
+		Metrics.getInstance().histogram("gsls_dht_put_duration_seconds", "duration of DHT put operations", "outcome", !completed ? "timeout" : futurePut.isSuccess() ? "success" : "failure").observeSince(start);
+		
+		if(!completed)
+			throw new DHTTimeoutException("DHT put timed out after " + timeout + " ms");
+		
+		// if this peer did not store the new version itself, its local copy must not be served anymore
+		syncLocalState(key, value);
+		
+		// the extra replicas of a hot key are rewritten in the next window
+		Integer replicas = putSeen(key);
+		
+		if(!futurePut.isSuccess())
+			throw new IOException("DHT put failed: " + futurePut.failedReason());
+		
+		if(Config.getInstance().getInvalidationEnabled())
+			broadcastInvalidation(key, value, replicas);
+		
 		// TODO: use non-blocking?
 	}
 	
+	/**
+	 * @param operation
+	 * @param deadline System.nanoTime() by which the operation must complete
+	 * @param timeout maximum duration of the operation in milliseconds
+	 * @return the time left for the operation in milliseconds
+	 * @throws DHTTimeoutException if the deadline already expired
+	 */
+	private static long remaining(String operation, long deadline, long timeout) throws DHTTimeoutException
+	{
+		long remaining = Math.min(timeout, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+		
+		if(remaining <= 0)
+		{
+			Metrics.getInstance().counter("gsls_dht_rejected_total", "DHT operations rejected before they were started", "operation", operation, "reason", "deadline_expired").increment();
+			throw new DHTTimeoutException("request deadline expired before the DHT operation was started");
+		}
+		
+		return remaining;
+	}
+	
+	/**
+	 * fails the operation right away until the initial join completed and while the circuit is open
+	 */
+	private void checkCircuit(String operation) throws DHTUnavailableException
+	{
+		if(!overlayState.equals("joined"))
+		{
+			Metrics.getInstance().counter("gsls_dht_rejected_total", "DHT operations rejected before they were started", "operation", operation, "reason", "not_joined").increment();
+			throw new DHTUnavailableException("DHT overlay not joined yet", Config.getInstance().getDhtRetryAfter());
+		}
+		
+		if(circuit.isOpen())
+		{
+			Metrics.getInstance().counter("gsls_dht_rejected_total", "DHT operations rejected before they were started", "operation", operation, "reason", "circuit_open").increment();
+			throw new DHTUnavailableException("DHT overlay unreachable", Config.getInstance().getDhtRetryAfter());
+		}
+	}
+	
+	private void recordOutcome(boolean success)
+	{
+		// a seed without neighbours is alone in the overlay, not cut off from it
+		if(!success && seed && getAllNeighbors().isEmpty())
+			return;
+		
+		if(success)
+			circuit.recordSuccess();
+		else if(circuit.recordFailure())
+			LOGGER.warn("DHT operations keep failing. circuit opened");
+	}
+	
+	/**
+	 * adjusts the extra replicas of hot keys to the demand of the last window. A key gets one
+	 * extra replica per hotKeyThreshold gets in the window, up to hotKeyMaxReplicas. Replicas of
+	 * hot keys are rewritten from the primary every window, replicas no longer needed are removed.
+	 * Replicas are stored with a TTL, so they expire even if this node stops refreshing them
+	 */
+	public void rebalanceHotKeys()
+	{
+		if(!Config.getInstance().getHotKeyEnabled() || peer == null)
+			return;
+		
+		long round = System.nanoTime();
+		Map<String, Long> demand = hotKeys.estimates();
+		hotKeys.decay();
+		
+		Set<String> keys = new HashSet<String>(demand.keySet());
+		keys.addAll(hotReplicas.keySet());
+		
+		for(String key : keys)
+		{
+			Long count = demand.get(key);
+			int target = (int) Math.min(Config.getInstance().getHotKeyMaxReplicas(), (count == null ? 0 : count) / Config.getInstance().getHotKeyThreshold());
+			Integer current = hotReplicas.get(key);
+			
+			try
+			{
+				if(target > 0)
+				{
+					long read = System.nanoTime();
+					writeHotKeyReplicas(key, target);
+					
+					// read from the replicas only once they hold the current version
+					synchronized(hotReplicas)
+					{
+						Long put = lastPuts.get(key);
+						
+						if(put == null || put - read < 0)
+							hotReplicas.put(key, target);
+						else
+							hotReplicas.remove(key);
+					}
+				}
+				else
+				{
+					hotReplicas.remove(key);
+				}
+			}
+			catch (GIDNotFoundException | DHTUnavailableException | DHTTimeoutException | IOException e)
+			{
+				hotReplicas.remove(key);
+				HOT_KEY_REPLICAS_FAILED.increment();
+				LOGGER.info("replicating hot key " + key + " failed: " + e.getMessage());
+				continue;
+			}
+			
+			for(int replica=target + 1; current != null && replica<=current; replica++)
+			{
+				peer.remove(locationKey(key, replica)).start();
+				HOT_KEY_REPLICAS_REMOVED.increment();
+			}
+		}
+		
+		// PUTs before this round preceded all of its reads of the primary
+		synchronized(hotReplicas)
+		{
+			lastPuts.values().removeIf(put -> put - round < 0);
+		}
+	}
+	
+	/**
+	 * stops the reads from the extra replicas of a key after a PUT, until they are rewritten
+	 *
+	 * @return number of extra replicas the key had, null if it had none
+	 */
+	private Integer putSeen(String key)
+	{
+		synchronized(hotReplicas)
+		{
+			lastPuts.put(key, System.nanoTime());
+			return hotReplicas.remove(key);
+		}
+	}
+	
+	/**
+	 * copies the current version from the primary to the extra replicas. The writes count against
+	 * the concurrency limit and are not started while the circuit is open, like any other put
+	 */
+	private void writeHotKeyReplicas(String key, int replicas) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException, IOException
+	{
+		long timeout = Config.getInstance().getDhtPutTimeout();
+		String value = getFromNetwork(key, 0, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getDhtGetTimeout()));
+		int ttl = (int) TimeUnit.MILLISECONDS.toSeconds(Config.getInstance().getHotKeyReplicaTtl());
+		
+		for(int replica=1; replica<=replicas; replica++)
+		{
+			checkCircuit("hot_key_replica");
+			acquire("hot_key_replica");
+			
+			long start = System.nanoTime();
+			FuturePut futurePut;
+			boolean completed = false;
+			
+			try
+			{
+				futurePut = peer.put(locationKey(key, replica)).data(new Data(value).ttlSeconds(ttl)).start();
+				completed = futurePut.awaitUninterruptibly(timeout);
+				
+				if(!completed)
+					futurePut.cancel();
+			}
+			finally
+			{
+				limiter.release("put", System.nanoTime() - start, !completed);
+			}
+			
+			recordOutcome(completed && futurePut.isSuccess());
+			
+			if(!completed)
+				throw new DHTTimeoutException("DHT put timed out after " + timeout + " ms");
+			
+			if(!futurePut.isSuccess())
+				throw new IOException("DHT put failed: " + futurePut.failedReason());
+			
+			HOT_KEY_REPLICAS_WRITTEN.increment();
+		}
+	}
+	
+	/**
+	 * compares the local storage with a neighbouring replica and pulls records that are missing
+	 * or outdated locally
+	 */
+	public void synchronizeReplicas()
+	{
+		if(Config.getInstance().getAntiEntropyEnabled() && peer != null)
+			antiEntropy.synchronize();
+	}
+	
+	/**
+	 * checks the overlay in the background while the circuit is open and closes it again once a
+	 * probe get is answered by at least one peer. The circuit is only opened by consecutive failed
+	 * operations, so a seed that is still alone in the overlay keeps serving
+	 */
+	public void probe()
+	{
+		// nothing to probe until the health monitor reconnected
+		if(!circuit.isOpen() || getAllNeighbors().isEmpty())
+			return;
+		
+		FutureGet futureGet = peer.get(new Number160(new Random())).start();
+		
+		if(!futureGet.awaitUninterruptibly(Config.getInstance().getCircuitProbeTimeout()))
+		{
+			futureGet.cancel();
+			return;
+		}
+		
+		if(futureGet.rawData() != null && !futureGet.rawData().isEmpty() && circuit.close())
+			LOGGER.info("DHT overlay reachable again after " + (System.currentTimeMillis() - circuit.getOpenedAt()) + " ms. circuit closed");
+	}
+	
+	public boolean isCircuitOpen()
+	{
+		return circuit.isOpen();
+	}
+	
+	/**
+	 * @return starting, joining, joined or failed
+	 */
+	public String getOverlayState()
+	{
+		return overlayState;
+	}
+	
+	/**
+	 * sheds the operation if the concurrency limit is reached, instead of queueing it behind slow DHT operations
+	 */
+	private void acquire(String operation) throws DHTUnavailableException
+	{
+		if(!limiter.tryAcquire())
+		{
+			Metrics.getInstance().counter("gsls_dht_rejected_total", "DHT operations rejected before they were started", "operation", operation, "reason", "concurrency_limit").increment();
+			throw new DHTUnavailableException("DHT concurrency limit reached", Config.getInstance().getDhtRetryAfter());
+		}
+	}
+	
 	/**
 	 * removes a key from the DHT. Should ONLY be used for the tests
 	 *
@@ -149,6 +1279,16 @@ public class DHTManager
 		peer.remove(Number160.createHash(key)).start();
 	}
 	
+	/**
+	 * stops the replication and shuts down the peer
+	 */
+	public void shutdown()
+	{
+		if(replication != null)
+			replication.shutdown();
+		peer.shutdown().awaitUninterruptibly();
+	}
+	
 	/**
 	 * retrieves a list of all connected peers
 	 * 
@@ -156,6 +1296,9 @@ public class DHTManager
 	 */
 	public List<PeerAddress> getAllNeighbors()
 	{
+		if(peer == null)
+			return Collections.emptyList();
+		
 		return peer.peerBean().peerMap().all();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package net.sonic.gsls.controller;
+
+/**
+ * Exception class for DHT operations that did not complete before their deadline. The operation
+ * was cancelled, but a put may still have reached some peers.
+ * 
+ * @version 1
+ */
+public class DHTTimeoutException extends Exception
+{
+	private static final long serialVersionUID = 5320941846457613702L;
+	
+	public DHTTimeoutException(String message)
+	{
+		super(message);
+	}
+}
@@ -0,0 +1,29 @@
+package net.sonic.gsls.controller;
+
+/**
+ * Exception class for DHT operations that were rejected because the DHT is overloaded or
+ * unavailable. The operation was not attempted and can be retried later.
+ * 
+ * @version 1
+ */
+public class DHTUnavailableException extends Exception
+{
+	private static final long serialVersionUID = -2410962853716830218L;
+	
+	private final int retryAfter;
+	
+	/**
+	 * @param message
+	 * @param retryAfter seconds after which the operation may be retried
+	 */
+	public DHTUnavailableException(String message, int retryAfter)
+	{
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+	
+	public int getRetryAfter()
+	{
+		return retryAfter;
+	}
+}
@@ -0,0 +1,77 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+
+import org.json.JSONObject;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Liveness and readiness endpoints for load balancers and orchestration. The REST interface
+ * starts before the node has joined the DHT, so a node is live as soon as it answers, but only
+ * ready once it has enough neighbours in the overlay and the cache warm-up finished. The seed
+ * node is exempt from the neighbour count, it is the first node of the overlay
+ *
+ * @version 1
+ */
+@RestController
+public class HealthService
+{
+	/**
+	 * @return 200 unless the DHT peer could not be started, 503 otherwise
+	 */
+	@RequestMapping(value = "/live", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<String> live()
+	{
+		boolean live = !DHTManager.getInstance().getOverlayState().equals("failed");
+		
+		JSONObject response = new JSONObject();
+		response.put("status", live ? 200 : 503);
+		response.put("live", live);
+		
+		return new ResponseEntity<String>(response.toString(), live ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+	}
+	
+	/**
+	 * @return 200 if the node has joined the overlay, has neighbours or is the seed, the DHT circuit is closed
+	 *         and the warm-up finished, 503 otherwise. The body reports the state of each
+	 */
+	@RequestMapping(value = "/ready", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<String> ready()
+	{
+		DHTManager dht = DHTManager.getInstance();
+		WarmUp warmUp = WarmUp.getInstance();
+		
+		String state = dht.getOverlayState();
+		int neighbors = dht.getAllNeighbors().size();
+		boolean circuitOpen = dht.isCircuitOpen();
+		
+		boolean connected = dht.isSeed() || neighbors >= Config.getInstance().getReadyMinNeighbors();
+		boolean ready = state.equals("joined") && connected && !circuitOpen && warmUp.isFinished();
+		
+		JSONObject overlay = new JSONObject();
+		overlay.put("state", state);
+		overlay.put("neighbors", neighbors);
+		overlay.put("seed", dht.isSeed());
+		overlay.put("circuitOpen", circuitOpen);
+		overlay.put("healthy", OverlayHealthMonitor.getInstance().isHealthy());
+		
+		JSONObject warmUpState = new JSONObject();
+		warmUpState.put("finished", warmUp.isFinished());
+		warmUpState.put("progress", warmUp.getProgress());
+		warmUpState.put("completed", warmUp.getCompleted());
+		warmUpState.put("total", warmUp.getTotal());
+		
+		JSONObject response = new JSONObject();
+		response.put("status", ready ? 200 : 503);
+		response.put("ready", ready);
+		response.put("overlay", overlay);
+		response.put("warmUp", warmUpState);
+		
+		return new ResponseEntity<String>(response.toString(), ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE);
+	}
+}
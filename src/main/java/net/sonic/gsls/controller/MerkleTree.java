@@ -0,0 +1,174 @@
+package net.sonic.gsls.controller;
+
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Merkle tree over the records in the local storage of a peer.
+ *
+ * The key space is split into 2^depth leaves by the leading bits of the location key. A leaf
+ * hashes the location keys and data hashes of its records, inner nodes hash their two children.
+ * Nodes are stored in heap order: the root is node 0, the children of node i are 2i+1 and 2i+2.
+ * Two peers holding the same records have the same root, and the nodes in which their trees
+ * differ lead down to the leaves holding the differing records.
+ *
+ * Only primary records are included. The extra replicas of hot keys are the only records stored
+ * with a TTL; they are rewritten from the primary and expire on their own, so they are never
+ * synchronized.
+ *
+ * @version 1
+ */
+public class MerkleTree
+{
+	private final int depth;
+	private final byte[][] nodes;
+	private final Map<Number160, Number160>[] leaves;
+	private final long created = System.currentTimeMillis();
+	
+	/**
+	 * @param store records of the local storage. Only records stored under the default domain, content and version keys are included
+	 * @param depth number of levels below the root, 1 to 16
+	 */
+	public MerkleTree(NavigableMap<Number640, Data> store, int depth)
+	{
+		this(store, depth, locationKey -> true);
+	}
+	
+	/**
+	 * @param store records of the local storage. Only records stored under the default domain, content and version keys are included
+	 * @param depth number of levels below the root, 1 to 16
+	 * @param include selects the location keys covered by the tree, e.g. the key range two peers both replicate
+	 */
+	@SuppressWarnings("unchecked")
+	public MerkleTree(NavigableMap<Number640, Data> store, int depth, Predicate<Number160> include)
+	{
+		if(depth < 1 || depth > 16)
+			throw new IllegalArgumentException("depth must be between 1 and 16");
+		
+		this.depth = depth;
+		this.nodes = new byte[(2 << depth) - 1][];
+		this.leaves = new Map[1 << depth];
+		
+		for(int i=0; i<leaves.length; i++)
+			leaves[i] = new TreeMap<Number160, Number160>();
+		
+		for(Map.Entry<Number640, Data> entry : store.entrySet())
+		{
+			Number640 key = entry.getKey();
+			
+			if(!key.domainKey().isZero() || !key.contentKey().isZero() || !key.versionKey().isZero())
+				continue;
+			
+			if(entry.getValue().ttlSeconds() > 0 || !include.test(key.locationKey()))
+				continue;
+			
+			leaves[leafOf(key.locationKey())].put(key.locationKey(), entry.getValue().hash());
+		}
+		
+		MessageDigest sha256 = sha256();
+		int firstLeaf = leaves.length - 1;
+		
+		for(int i=0; i<leaves.length; i++)
+		{
+			for(Map.Entry<Number160, Number160> entry : leaves[i].entrySet())
+			{
+				sha256.update(entry.getKey().toByteArray());
+				sha256.update(entry.getValue().toByteArray());
+			}
+			
+			nodes[firstLeaf + i] = sha256.digest();
+		}
+		
+		for(int i=firstLeaf - 1; i>=0; i--)
+		{
+			sha256.update(nodes[2 * i + 1]);
+			sha256.update(nodes[2 * i + 2]);
+			nodes[i] = sha256.digest();
+		}
+	}
+	
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * @param locationKey
+	 * @return index of the leaf covering the key
+	 */
+	public int leafOf(Number160 locationKey)
+	{
+		byte[] bytes = locationKey.toByteArray();
+		int prefix = ((bytes[0] & 0xff) << 8) | (bytes[1] & 0xff);
+		
+		return prefix >>> (16 - depth);
+	}
+	
+	public int getDepth()
+	{
+		return depth;
+	}
+	
+	/**
+	 * @return time the tree was built, in milliseconds since the epoch
+	 */
+	public long getCreated()
+	{
+		return created;
+	}
+	
+	public int size()
+	{
+		return nodes.length;
+	}
+	
+	public byte[] getHash(int node)
+	{
+		return nodes[node];
+	}
+	
+	public boolean isLeaf(int node)
+	{
+		return node >= leaves.length - 1;
+	}
+	
+	public boolean matches(int node, byte[] hash)
+	{
+		return Arrays.equals(nodes[node], hash);
+	}
+	
+	/**
+	 * @param node index of a leaf node
+	 * @return location keys and data hashes of the records in the leaf
+	 */
+	public Map<Number160, Number160> getLeaf(int node)
+	{
+		return leaves[node - (leaves.length - 1)];
+	}
+	
+	/**
+	 * @param locationKey
+	 * @return hash of the data stored under the key, or null if the tree holds no such record
+	 */
+	public Number160 getDataHash(Number160 locationKey)
+	{
+		return leaves[leafOf(locationKey)].get(locationKey);
+	}
+}
@@ -0,0 +1,24 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.metrics.Metrics;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes the metrics in the Prometheus text format
+ *
+ * @version 1
+ */
+@RestController
+public class MetricsService
+{
+	@RequestMapping(value = "/metrics", method = RequestMethod.GET, produces = "text/plain; version=0.0.4")
+	public ResponseEntity<String> metrics()
+	{
+		return new ResponseEntity<String>(Metrics.getInstance().export(), HttpStatus.OK);
+	}
+}
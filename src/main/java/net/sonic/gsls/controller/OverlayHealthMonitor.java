@@ -0,0 +1,169 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the health of the DHT overlay and decides when the node has to re-bootstrap.
+ *
+ * DHT operations report their outcome and routing latency, the neighbour count is sampled on
+ * every check. A re-bootstrap is only triggered if the overlay is unhealthy, and repeated
+ * attempts are spaced out with an exponential backoff.
+ *
+ * @version 1
+ */
+public class OverlayHealthMonitor
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(OverlayHealthMonitor.class);
+	
+	private static OverlayHealthMonitor instance = null;
+	
+	// smoothing factor for the routing latency average
+	private static final double LATENCY_WEIGHT = 0.2;
+	
+	private final AtomicLong getsInWindow = new AtomicLong(0);
+	private final AtomicLong failedGetsInWindow = new AtomicLong(0);
+	private final AtomicLong routingLatency = new AtomicLong(Double.doubleToLongBits(0.0));
+	
+	private volatile int neighborCount = 0;
+	private volatile boolean healthy = true;
+	private long backoff = 0;
+	private long nextReconnect = 0;
+	
+	private OverlayHealthMonitor()
+	{
+		
+	}
+	
+	public static synchronized OverlayHealthMonitor getInstance()
+	{
+		if(instance == null)
+			instance = new OverlayHealthMonitor();
+		return instance;
+	}
+	
+	/**
+	 * records the outcome of a get operation
+	 *
+	 * @param latency routing latency in milliseconds
+	 * @param routed false if no peer answered the request
+	 */
+	public void recordGet(long latency, boolean routed)
+	{
+		getsInWindow.incrementAndGet();
+		if(!routed)
+			failedGetsInWindow.incrementAndGet();
+		recordLatency(latency);
+	}
+	
+	/**
+	 * records the routing latency of a put operation
+	 *
+	 * @param latency routing latency in milliseconds
+	 */
+	public void recordPut(long latency)
+	{
+		recordLatency(latency);
+	}
+	
+	private void recordLatency(long latency)
+	{
+		long current;
+		double average;
+		
+		do
+		{
+			current = routingLatency.get();
+			average = Double.longBitsToDouble(current);
+			average = average == 0.0 ? latency : average + LATENCY_WEIGHT * (latency - average);
+		}
+		while(!routingLatency.compareAndSet(current, Double.doubleToLongBits(average)));
+	}
+	
+	/**
+	 * evaluates the overlay health and re-bootstraps if the overlay is unhealthy and the backoff has passed
+	 */
+	public synchronized void check()
+	{
+		Config config = Config.getInstance();
+		
+		// the initial join is still running or the peer could not be started
+		if(!DHTManager.getInstance().getOverlayState().equals("joined"))
+			return;
+		
+		neighborCount = DHTManager.getInstance().getAllNeighbors().size();
+		long gets = getsInWindow.getAndSet(0);
+		long failedGets = failedGetsInWindow.getAndSet(0);
+		double latency = getRoutingLatency();
+		
+		String reason = null;
+		
+		if(neighborCount < config.getHealthMinNeighbors())
+			reason = "neighbor count " + neighborCount + " below " + config.getHealthMinNeighbors();
+		else if(gets >= config.getHealthMinSamples() && failedGets > gets * config.getHealthMaxFailureRatio())
+			reason = failedGets + " of " + gets + " gets failed";
+		else if(latency > config.getHealthMaxRoutingLatency())
+			reason = "routing latency " + (long) latency + "ms above " + config.getHealthMaxRoutingLatency() + "ms";
+		
+		if(reason == null)
+		{
+			if(!healthy)
+				LOGGER.info("overlay recovered: " + neighborCount + " neighbors");
+			
+			healthy = true;
+			backoff = 0;
+			nextReconnect = 0;
+			return;
+		}
+		
+		healthy = false;
+		
+		long now = System.currentTimeMillis();
+		if(now < nextReconnect)
+		{
+			LOGGER.debug("overlay unhealthy (" + reason + "), next reconnect in " + (nextReconnect - now) + "ms");
+			return;
+		}
+		
+		backoff = backoff == 0 ? config.getReconnectBackoffMin() : Math.min(backoff * 2, config.getReconnectBackoffMax());
+		nextReconnect = now + backoff;
+		
+		LOGGER.info("overlay unhealthy (" + reason + "), reconnecting. next attempt in " + backoff + "ms at the earliest");
+		
+		try
+		{
+			DHTManager.getInstance().connectToConnectNode();
+			
+			// the latency average describes the broken overlay, start over after a re-bootstrap
+			routingLatency.set(Double.doubleToLongBits(0.0));
+		}
+		catch (Exception e)
+		{
+			LOGGER.error("reconnect failed: " + e.getMessage());
+		}
+	}
+	
+	public boolean isHealthy()
+	{
+		return healthy;
+	}
+	
+	public int getNeighborCount()
+	{
+		return neighborCount;
+	}
+	
+	/**
+	 * retrieves the smoothed routing latency in milliseconds
+	 *
+	 * @return double
+	 */
+	public double getRoutingLatency()
+	{
+		return Double.longBitsToDouble(routingLatency.get());
+	}
+}
@@ -0,0 +1,53 @@
+package net.sonic.gsls.controller;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Applies the per-address read and write budgets before the request body is read. Rejected
+ * requests get a 429 with a Retry-After header. The metrics and probe endpoints are never limited
+ * so monitoring keeps working while clients are throttled.
+ *
+ * @version 1
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter
+{
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request)
+	{
+		String path = request.getServletPath();
+		
+		return path.equals("/metrics") || path.equals("/ready") || path.equals("/live");
+	}
+	
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+	{
+		boolean write = !request.getMethod().equals("GET") && !request.getMethod().equals("HEAD");
+		
+		long wait = RateLimits.getInstance().admitAddress(request.getRemoteAddr(), write);
+		
+		if(wait > 0)
+		{
+			response.setStatus(429);
+			response.setHeader("Retry-After", RateLimits.retryAfter(wait));
+			response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+			response.getWriter().write(RateLimits.rejection());
+			return;
+		}
+		
+		chain.doFilter(request, response);
+	}
+}
@@ -0,0 +1,124 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.util.RateLimiter;
+
+import org.json.JSONObject;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client request budgets. Reads and writes are limited per source address, writes are
+ * additionally limited per platformGID, so a single platform cannot use up the write capacity of
+ * the node from many addresses. Using singleton pattern.
+ *
+ * @version 1
+ */
+public class RateLimits
+{
+	private static RateLimits _singleton = null;
+	
+	private final boolean enabled;
+	
+	private final RateLimiter addressReads;
+	private final RateLimiter addressWrites;
+	private final RateLimiter platformWrites;
+	
+	private final Counter addressReadsRejected;
+	private final Counter addressWritesRejected;
+	private final Counter platformWritesRejected;
+	
+	private RateLimits()
+	{
+		Config config = Config.getInstance();
+		
+		this.enabled = config.getRateLimitEnabled();
+		this.addressReads = new RateLimiter(config.getRateLimitReadRate(), config.getRateLimitReadBurst());
+		this.addressWrites = new RateLimiter(config.getRateLimitWriteRate(), config.getRateLimitWriteBurst());
+		this.platformWrites = new RateLimiter(config.getRateLimitPlatformWriteRate(), config.getRateLimitPlatformWriteBurst());
+		
+		Metrics metrics = Metrics.getInstance();
+		
+		this.addressReadsRejected = metrics.counter("gsls_rate_limited_total", "requests rejected by a rate limit", "limit", "address_read");
+		this.addressWritesRejected = metrics.counter("gsls_rate_limited_total", "requests rejected by a rate limit", "limit", "address_write");
+		this.platformWritesRejected = metrics.counter("gsls_rate_limited_total", "requests rejected by a rate limit", "limit", "platform_write");
+		
+		metrics.gauge("gsls_rate_limit_buckets", "active rate limit buckets", () -> addressReads.size(), "limit", "address_read");
+		metrics.gauge("gsls_rate_limit_buckets", "active rate limit buckets", () -> addressWrites.size(), "limit", "address_write");
+		metrics.gauge("gsls_rate_limit_buckets", "active rate limit buckets", () -> platformWrites.size(), "limit", "platform_write");
+	}
+	
+	public static synchronized RateLimits getInstance()
+	{
+		if(_singleton == null)
+		{
+			_singleton = new RateLimits();
+		}
+		return _singleton;
+	}
+	
+	/**
+	 * @param address client address
+	 * @param write true for requests that modify the DHT
+	 * @return 0 if the request is admitted, otherwise the nanoseconds until it would be admitted
+	 */
+	public long admitAddress(String address, boolean write)
+	{
+		if(!enabled)
+			return 0;
+		
+		long wait = write ? addressWrites.acquire(address) : addressReads.acquire(address);
+		
+		if(wait > 0)
+			(write ? addressWritesRejected : addressReadsRejected).increment();
+		
+		return wait;
+	}
+	
+	/**
+	 * @param platformGID
+	 * @return 0 if the write is admitted, otherwise the nanoseconds until it would be admitted
+	 */
+	public long admitPlatformWrite(String platformGID)
+	{
+		if(!enabled || platformGID == null || platformGID.isEmpty())
+			return 0;
+		
+		long wait = platformWrites.acquire(platformGID);
+		
+		if(wait > 0)
+			platformWritesRejected.increment();
+		
+		return wait;
+	}
+	
+	public void evictIdle()
+	{
+		long idleTimeout = Config.getInstance().getRateLimitIdleTimeout();
+		
+		addressReads.evictIdle(idleTimeout);
+		addressWrites.evictIdle(idleTimeout);
+		platformWrites.evictIdle(idleTimeout);
+	}
+	
+	/**
+	 * @param wait nanoseconds
+	 * @return the value of the Retry-After header, in whole seconds
+	 */
+	public static String retryAfter(long wait)
+	{
+		return Long.toString(Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+	}
+	
+	public static String rejection()
+	{
+		JSONObject response = new JSONObject();
+		
+		response.put("status", 429);
+		response.put("message", "Rate limit exceeded");
+		
+		return response.toString();
+	}
+}
@@ -0,0 +1,318 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.util.OffHeapCache;
+import net.sonic.gsls.util.SegmentCache;
+import net.sonic.gsls.util.TinyLFUCache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cache of SocialRecord JWTs that passed integrity and signature checks, keyed by GlobalID. Only
+ * verified records may be added. Entries are fresh for the cache TTL and may be served as stale
+ * copies for up to the maximum staleness while the DHT is unavailable. Records requested only
+ * once do not displace frequently requested ones (see TinyLFUCache). If an off-heap size is
+ * configured, all records are also kept in an off-heap tier that is consulted on misses, so the
+ * cache can hold millions of records without growing the heap. Below these, a disk tier of
+ * memory-mapped segment files keeps the records across restarts, so a restarted node only has
+ * to revalidate its cached records by digest. Using singleton pattern.
+ *
+ * @version 1
+ */
+public class RecordCache
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(RecordCache.class);
+	
+	private static RecordCache _singleton = null;
+	
+	private final TinyLFUCache<String, Entry> entries = new TinyLFUCache<String, Entry>("record", Config.getInstance().getRecordCacheSize());
+	private final OffHeapCache offHeap;
+	private final SegmentCache disk;
+	
+	private final Counter hits = Metrics.getInstance().counter("gsls_cache_requests_total", "cache lookups", "cache", "record", "result", "hit");
+	private final Counter staleHits = Metrics.getInstance().counter("gsls_cache_requests_total", "cache lookups", "cache", "record", "result", "stale");
+	private final Counter misses = Metrics.getInstance().counter("gsls_cache_requests_total", "cache lookups", "cache", "record", "result", "miss");
+	
+	private final Counter revalidationsUnchanged = Metrics.getInstance().counter("gsls_cache_revalidations_total", "digest revalidations of expired cache entries", "cache", "record", "result", "unchanged");
+	private final Counter revalidationsChanged = Metrics.getInstance().counter("gsls_cache_revalidations_total", "digest revalidations of expired cache entries", "cache", "record", "result", "changed");
+	private final Counter revalidationsFailed = Metrics.getInstance().counter("gsls_cache_revalidations_total", "digest revalidations of expired cache entries", "cache", "record", "result", "failed");
+	
+	/**
+	 * a verified record and the time it was verified
+	 */
+	public static class Entry
+	{
+		private final String jwt;
+		private final long verified;
+		
+		private Entry(String jwt, long verified)
+		{
+			this.jwt = jwt;
+			this.verified = verified;
+		}
+		
+		public String getJWT()
+		{
+			return jwt;
+		}
+		
+		/**
+		 * @return time of verification in milliseconds since the epoch
+		 */
+		public long getVerified()
+		{
+			return verified;
+		}
+		
+		public boolean isFresh()
+		{
+			return System.currentTimeMillis() - verified < Config.getInstance().getRecordCacheTtl();
+		}
+		
+		public boolean isServableStale()
+		{
+			return System.currentTimeMillis() - verified < Config.getInstance().getRecordCacheMaxStale();
+		}
+		
+		private byte[] encode()
+		{
+			byte[] bytes = jwt.getBytes(StandardCharsets.UTF_8);
+			
+			return ByteBuffer.allocate(8 + bytes.length).putLong(verified).put(bytes).array();
+		}
+		
+		private static Entry decode(byte[] encoded)
+		{
+			long verified = ByteBuffer.wrap(encoded).getLong();
+			
+			return new Entry(new String(encoded, 8, encoded.length - 8, StandardCharsets.UTF_8), verified);
+		}
+	}
+	
+	private RecordCache()
+	{
+		if(Config.getInstance().getOffHeapCacheSize() > 0)
+			offHeap = new OffHeapCache("record", Config.getInstance().getOffHeapCacheSize(), Config.getInstance().getOffHeapSlabSize());
+		else
+			offHeap = null;
+		
+		SegmentCache segments = null;
+		
+		if(Config.getInstance().getDiskCacheSize() > 0)
+		{
+			try
+			{
+				segments = new SegmentCache("record", new File(Config.getInstance().getDiskCachePath()), Config.getInstance().getDiskCacheSize(), Config.getInstance().getDiskCacheSegmentSize());
+			}
+			catch (IOException e)
+			{
+				LOGGER.warn("disk cache disabled: " + e.getMessage());
+			}
+		}
+		
+		disk = segments;
+		
+		Metrics.getInstance().gauge("gsls_cache_entries", "entries held by a cache", () -> entries.size(), "cache", "record");
+	}
+	
+	public static synchronized RecordCache getInstance()
+	{
+		if(_singleton == null)
+		{
+			_singleton = new RecordCache();
+		}
+		return _singleton;
+	}
+	
+	/**
+	 * looks up the heap tier first, then the off-heap and the disk tier. Entries found in a lower
+	 * tier are copied to the tiers above
+	 * 
+	 * @param globalID
+	 * @param request true if the lookup is a client request and counts for the admission policy
+	 */
+	private Entry lookup(String globalID, boolean request)
+	{
+		Entry entry = request ? entries.get(globalID) : entries.peek(globalID);
+		
+		if(entry == null && offHeap != null)
+		{
+			byte[] encoded = offHeap.get(globalID);
+			
+			if(encoded != null)
+			{
+				entry = Entry.decode(encoded);
+				entries.put(globalID, entry);
+			}
+		}
+		
+		if(entry == null && disk != null)
+		{
+			byte[] encoded = disk.get(globalID);
+			
+			if(encoded != null)
+			{
+				entry = Entry.decode(encoded);
+				entries.put(globalID, entry);
+				
+				if(offHeap != null)
+					offHeap.put(globalID, encoded);
+			}
+		}
+		
+		return entry;
+	}
+	
+	private void store(String globalID, Entry entry)
+	{
+		entries.put(globalID, entry);
+		
+		if(offHeap == null && disk == null)
+			return;
+		
+		byte[] encoded = entry.encode();
+		
+		if(offHeap != null)
+			offHeap.put(globalID, encoded);
+		
+		if(disk != null)
+			disk.put(globalID, encoded);
+	}
+	
+	/**
+	 * @param globalID
+	 * @return the entry if it is fresh, null otherwise
+	 */
+	public Entry getFresh(String globalID)
+	{
+		Entry entry = lookup(globalID, true);
+		
+		if(entry != null && entry.isFresh())
+		{
+			hits.increment();
+			return entry;
+		}
+		
+		misses.increment();
+		return null;
+	}
+	
+	/**
+	 * @param globalID
+	 * @return the entry if it is still within the maximum staleness, null otherwise
+	 */
+	public Entry getStale(String globalID)
+	{
+		Entry entry = lookup(globalID, false);
+		
+		if(entry != null && entry.isServableStale())
+		{
+			staleHits.increment();
+			return entry;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * revalidates an expired entry by comparing it to the digest of the version in the DHT,
+	 * instead of fetching and verifying the full record again. If the DHT still holds the cached
+	 * version, the entry is fresh again
+	 * 
+	 * @param globalID
+	 * @param deadline System.nanoTime() by which the revalidation must complete
+	 * @return the refreshed entry, or null if there is no entry or the record was changed
+	 */
+	public Entry revalidate(String globalID, long deadline)
+	{
+		Entry entry = lookup(globalID, false);
+		
+		if(entry == null || !entry.isServableStale())
+			return null;
+		
+		try
+		{
+			if(DHTManager.getInstance().isCurrent(globalID, entry.getJWT(), deadline))
+			{
+				revalidationsUnchanged.increment();
+				
+				Entry refreshed = new Entry(entry.getJWT(), System.currentTimeMillis());
+				store(globalID, refreshed);
+				return refreshed;
+			}
+			
+			revalidationsChanged.increment();
+		}
+		catch (DHTUnavailableException | DHTTimeoutException e)
+		{
+			revalidationsFailed.increment();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * adds a record. The caller must have verified the record's integrity and signature
+	 * 
+	 * @param globalID
+	 * @param jwt
+	 */
+	public void put(String globalID, String jwt)
+	{
+		store(globalID, new Entry(jwt, System.currentTimeMillis()));
+	}
+	
+	/**
+	 * drops the entry for the GlobalID unless it already holds the version with the given digest
+	 * 
+	 * @param globalID
+	 * @param digest DHT digest of the current version
+	 */
+	public void invalidate(String globalID, String digest)
+	{
+		Entry entry = lookup(globalID, false);
+		
+		if(entry == null)
+			return;
+		
+		try
+		{
+			if(DHTManager.digestOf(entry.getJWT()).toString().equals(digest))
+				return;
+		}
+		catch (IOException e)
+		{
+			// drop the entry
+		}
+		
+		remove(globalID);
+	}
+	
+	public void remove(String globalID)
+	{
+		entries.remove(globalID);
+		
+		if(offHeap != null)
+			offHeap.remove(globalID);
+		
+		if(disk != null)
+			disk.remove(globalID);
+	}
+	
+	/**
+	 * writes pending changes of the disk tier to disk
+	 */
+	public void flush()
+	{
+		if(disk != null)
+			disk.flush();
+	}
+}
@@ -1,6 +1,5 @@
 package net.sonic.gsls.controller;
 
-import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureException;
 import io.jsonwebtoken.UnsupportedJwtException;
@@ -10,6 +9,7 @@ import net.sonic.gsls.model.SocialRecord;
 import net.sonic.gsls.model.SocialRecordIntegrityException;
 import net.sonic.gsls.util.IntegrityException;
 import net.sonic.gsls.util.KeyPairManager;
+import net.sonic.gsls.util.RequestLog;
 import net.tomp2p.peers.PeerAddress;
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -27,6 +27,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main class for GSLS REST interface
@@ -40,11 +43,12 @@ import java.util.List;
 public class RestService
 {
 	private static final Logger LOGGER = LoggerFactory.getLogger(RestService.class);
+	private static final RequestLog REQUEST_LOG = RequestLog.getInstance();
 	
 	@RequestMapping(method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_VALUE)
 	public ResponseEntity<String> index() throws URISyntaxException
 	{
-		LOGGER.info("Incoming request: GET /");
+		REQUEST_LOG.info("received", "GET", null, null);
 		
 		List<PeerAddress> AllNeighbors = DHTManager.getInstance().getAllNeighbors();
 		
@@ -80,9 +84,12 @@ public class RestService
 	@ResponseBody
 	public ResponseEntity<String> getEntityByGlobalID(@PathVariable("globalID") String globalID)
 	{
+		// all DHT operations of this request must complete within the request timeout
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getRequestTimeout());
+		
 		SocialRecord socialRecord;
 		
-		LOGGER.info("Incoming request: GET /" + globalID);
+		REQUEST_LOG.info("received", "GET", globalID, null);
 		
 		if(globalID == null)
 		{
@@ -96,6 +103,29 @@ public class RestService
 		}
 		else //if(globalID != null)
 		{
+			// records verified within the cache TTL are served without DHT lookup and verification
+			RecordCache.Entry cached = RecordCache.getInstance().getFresh(globalID);
+			
+			if(cached != null)
+			{
+				REQUEST_LOG.info("cached", "GET", globalID, null);
+				
+				return found(globalID, cached.getJWT(), false);
+			}
+			
+			// an expired entry is still valid if the DHT holds the same version. checking the digest avoids fetching and verifying the record
+			if(Config.getInstance().getRecordRevalidation().equals("digest"))
+			{
+				cached = RecordCache.getInstance().revalidate(globalID, deadline);
+				
+				if(cached != null)
+				{
+					REQUEST_LOG.info("revalidated", "GET", globalID, null);
+					
+					return found(globalID, cached.getJWT(), false);
+				}
+			}
+			
 			String jwt = null;
 			
 			try
@@ -103,7 +133,7 @@ public class RestService
 				// get JWT from DHT
 				try
 				{
-					jwt = DHTManager.getInstance().get(globalID);
+					jwt = DHTManager.getInstance().get(globalID, deadline);
 				}
 				catch (GIDNotFoundException e)
 				{
@@ -115,6 +145,28 @@ public class RestService
 					
 					return new ResponseEntity<String>(response.toString(), HttpStatus.NOT_FOUND);
 				}
+				catch (DHTUnavailableException e)
+				{
+					// the DHT cannot be reached. serve the last verified version if there is one
+					cached = RecordCache.getInstance().getStale(globalID);
+					
+					if(cached != null)
+					{
+						REQUEST_LOG.info("stale", "GET", globalID, null);
+						
+						return found(globalID, cached.getJWT(), true);
+					}
+					
+					REQUEST_LOG.error("GET", globalID, 503, "DHT unavailable", null, e);
+					
+					return unavailable(e);
+				}
+				catch (DHTTimeoutException e)
+				{
+					REQUEST_LOG.error("GET", globalID, 504, "DHT timeout", null, e);
+					
+					return timeout(e);
+				}
 				
 				if(jwt == null)
 				{
@@ -132,7 +184,8 @@ public class RestService
 					JSONObject jwtPayload = new JSONObject(new String(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[1])));
 					JSONObject data = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwtPayload.get("socialRecord").toString()));
 					
-					LOGGER.info("decoded JWT payload: " + data.toString());
+					if(LOGGER.isDebugEnabled())
+						LOGGER.debug("decoded JWT payload: " + data.toString());
 					
 					// verify dataset integrity
 					try
@@ -140,11 +193,15 @@ public class RestService
 						//SocialRecord.checkSocialRecordValidity(data);
 						socialRecord = SocialRecord.createFromJSONObject(data);
 						socialRecord.validate();
+						
+						// a record stored under another GlobalID must neither be served nor cached for this one
+						if(!socialRecord.getGlobalID().equals(globalID))
+							throw new SocialRecordIntegrityException("GlobalID of the SocialRecord found in the DHT does not match the requested GlobalID");
 					}
 					catch (SocialRecordIntegrityException e)
 					{
 						// read jwt from dht, integrity check for the enclosed json failed
-						LOGGER.error("Integrity Exception found for JWT: " + jwt + " e: " + e.getMessage());
+						REQUEST_LOG.error("GET", globalID, 500, "Integrity Exception found for JWT", jwt, e);
 						
 						JSONObject response = new JSONObject();
 						
@@ -164,7 +221,7 @@ public class RestService
 					catch (InvalidKeySpecException | NoSuchAlgorithmException e)
 					{
 						// got jwt from dht, tried to extract public key, failed while doing so
-						LOGGER.error("Malformed public key found in SocialRecord: " + jwt + " e: " + e.getMessage());
+						REQUEST_LOG.error("GET", globalID, 500, "Malformed public key found in SocialRecord", jwt, e);
 						
 						JSONObject response = new JSONObject();
 						
@@ -177,12 +234,12 @@ public class RestService
 					// verify jwt
 					try
 					{
-						Jwts.parser().setSigningKey(publicKey).parseClaimsJws(jwt);
+						KeyPairManager.verifyJWT(jwt, publicKey);
 					}
 					catch (MalformedJwtException | UnsupportedJwtException e)
 					{
 						// got jwt from dht, jwt seems to be malformed
-						LOGGER.error("Malformed JWT found in DHT: " + jwt + " e: " + e.getMessage());
+						REQUEST_LOG.error("GET", globalID, 500, "Malformed JWT found in DHT", jwt, e);
 						
 						JSONObject response = new JSONObject();
 						
@@ -194,7 +251,7 @@ public class RestService
 					catch (SignatureException e)
 					{
 						// got jwt from dht, jwt signature check failed
-						LOGGER.error("Malformed JWT found in DHT: " + jwt + e.getMessage());
+						REQUEST_LOG.error("GET", globalID, 500, "Malformed signature for JWT found in DHT", jwt, e);
 						
 						JSONObject response = new JSONObject();
 						
@@ -204,20 +261,17 @@ public class RestService
 						return new ResponseEntity<String>(response.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 					}
 					
-					LOGGER.info("JWT for GlobalID " + globalID + " verified");
+					REQUEST_LOG.info("verified", "GET", globalID, null);
 					
-					JSONObject response = new JSONObject();
-					
-					response.put("status", 200);
-					response.put("message", jwt);
+					RecordCache.getInstance().put(globalID, jwt);
 					
-					return new ResponseEntity<String>(response.toString(), HttpStatus.OK);
+					return found(globalID, jwt, false);
 				}
 			}
 			catch(JSONException e)
 			{
 				// somewhere, a json exception was thrown
-				LOGGER.error("Faulty JSON data in DHT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("GET", globalID, 500, "Faulty JSON data in DHT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -249,7 +303,10 @@ public class RestService
 	@RequestMapping(value = "/{globalID}", method = RequestMethod.POST)
 	public ResponseEntity<String> postDdata(@RequestBody String jwt, @PathVariable("globalID") String globalID)
 	{
-		LOGGER.info("Incoming request: POST /" + globalID + " - JWT: " + jwt);
+		// all DHT operations of this request must complete within the request timeout
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getRequestTimeout());
+		
+		REQUEST_LOG.info("received", "POST", globalID, jwt);
 		
 		SocialRecord socialRecord;
 		JSONObject data; // the new jwt
@@ -269,10 +326,17 @@ public class RestService
 				//SocialRecord.checkSocialRecordValidity(data);
 				socialRecord = SocialRecord.createFromJSONObject(data);
 				socialRecord.validate();
+				
+				if(Config.getInstance().getVerifyGlobalID())
+					socialRecord.verifyGlobalID();
+				
+				// the record must be written under its own GlobalID
+				if(!socialRecord.getGlobalID().equals(globalID))
+					throw new SocialRecordIntegrityException("GlobalID of the SocialRecord does not match the GlobalID in the request URL");
 			}
 			catch (SocialRecordIntegrityException e)
 			{
-				LOGGER.error("Integrity Exception found for received JWT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("POST", globalID, 400, "Integrity Exception found for received JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -289,7 +353,7 @@ public class RestService
 			}
 			catch (InvalidKeySpecException | NoSuchAlgorithmException e)
 			{
-				LOGGER.error("Malformed public key found in JWT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("POST", globalID, 400, "Malformed public key found in JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -302,11 +366,11 @@ public class RestService
 			// verify jwt
 			try
 			{
-				Jwts.parser().setSigningKey(personalPublicKey).parseClaimsJws(jwt);
+				KeyPairManager.verifyJWT(jwt, personalPublicKey);
 			}
 			catch (MalformedJwtException | UnsupportedJwtException e)
 			{
-				LOGGER.error("Malformed JWT found in DHT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("POST", globalID, 400, "Malformed JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -317,7 +381,7 @@ public class RestService
 			}
 			catch (SignatureException e)
 			{
-				LOGGER.error("Malformed JWT found in DHT: " + jwt + e.getMessage());
+				REQUEST_LOG.error("POST", globalID, 400, "Malformed signature for JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -327,12 +391,22 @@ public class RestService
 				return new ResponseEntity<String>(response.toString(), HttpStatus.BAD_REQUEST);
 			}
 			
-			LOGGER.info("JWT for GlobalID " + globalID + " verified");
+			REQUEST_LOG.info("verified", "POST", globalID, null);
+			
+			// per-platform write budget, charged only for verified records so forged platformGIDs cannot drain it
+			long delay = RateLimits.getInstance().admitPlatformWrite(data.optString("platformGID"));
+			
+			if(delay > 0)
+			{
+				REQUEST_LOG.error("POST", globalID, 429, "Rate limit exceeded for platformGID", jwt, null);
+				
+				return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", RateLimits.retryAfter(delay)).body(RateLimits.rejection());
+			}
 			
 			try
 			{
 				// everything is fine. write SocialRecord to DHT
-				DHTManager.getInstance().put(globalID, jwt);
+				DHTManager.getInstance().put(globalID, jwt, deadline);
 			}
 			catch (IOException e)
 			{
@@ -344,8 +418,23 @@ public class RestService
 				
 				return new ResponseEntity<String>(response.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 			}
+			catch (DHTUnavailableException e)
+			{
+				REQUEST_LOG.error("POST", globalID, 503, "DHT unavailable", jwt, e);
+				
+				return unavailable(e);
+			}
+			catch (DHTTimeoutException e)
+			{
+				REQUEST_LOG.error("POST", globalID, 504, "DHT timeout", jwt, e);
+				
+				return timeout(e);
+			}
+			
+			REQUEST_LOG.info("written", "POST", globalID, null);
 			
-			LOGGER.info("SocialRecord for [" + globalID + "] written to DHT");
+			// only reached once the put was confirmed by the DHT
+			RecordCache.getInstance().put(globalID, jwt);
 			
 			JSONObject response = new JSONObject();
 			
@@ -357,7 +446,7 @@ public class RestService
 		catch(JSONException e)
 		{
 			// somewhere, a json exception was thrown
-			LOGGER.error("Faulty JSON data: " + jwt + " e: " + e.getMessage());
+			REQUEST_LOG.error("POST", globalID, 500, "Faulty JSON data", jwt, e);
 			
 			JSONObject response = new JSONObject();
 			
@@ -378,7 +467,10 @@ public class RestService
 	@RequestMapping(value = "/{globalID}", method = RequestMethod.PUT)
 	public ResponseEntity<String> putdata(@RequestBody String jwt, @PathVariable("globalID") String globalID)
 	{
-		LOGGER.info("Incoming request: PUT /" + globalID + " - JWT: " + jwt);
+		// all DHT operations of this request must complete within the request timeout
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getRequestTimeout());
+		
+		REQUEST_LOG.info("received", "PUT", globalID, jwt);
 		
 		SocialRecord newSocialRecord;
 		SocialRecord existingSocialRecord;
@@ -389,12 +481,18 @@ public class RestService
 		PublicKey newPersonalPublicKey; // the personal public key of the NEW version
 		PublicKey existingPersonalPublicKey;
 		
+		Future<String> existingFetch = null;
+		
 		try
 		{
 			// decode JWT
 			JSONObject jwtPayload = new JSONObject(new String(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[1])));
 			newData = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwtPayload.get("socialRecord").toString()));
 			
+			// fetch the existing version while the new one is verified. the result is discarded if the new version is rejected.
+			// the ownership check must not rely on a local copy or a hot key replica that may be outdated
+			existingFetch = DHTManager.getInstance().getAsync(globalID, deadline, true);
+			
 			//LOGGER.info("decoded JWT payload: " + newData.toString());
 			
 			// verify SocialRecord integrity
@@ -403,10 +501,17 @@ public class RestService
 				//SocialRecord.checkDatasetValidity(newData);
 				newSocialRecord = SocialRecord.createFromJSONObject(newData);
 				newSocialRecord.validate();
+				
+				if(Config.getInstance().getVerifyGlobalID())
+					newSocialRecord.verifyGlobalID();
+				
+				// the record must be written under its own GlobalID
+				if(!newSocialRecord.getGlobalID().equals(globalID))
+					throw new SocialRecordIntegrityException("GlobalID of the SocialRecord does not match the GlobalID in the request URL");
 			}
 			catch (SocialRecordIntegrityException e)
 			{
-				LOGGER.error("Integrity Exception found for received JWT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("PUT", globalID, 400, "Integrity Exception found for received JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -423,7 +528,7 @@ public class RestService
 			}
 			catch (InvalidKeySpecException | NoSuchAlgorithmException e)
 			{
-				LOGGER.error("Malformed public key found in JWT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("PUT", globalID, 400, "Malformed public key found in JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -436,11 +541,11 @@ public class RestService
 			// verify jwt
 			try
 			{
-				Jwts.parser().setSigningKey(newPersonalPublicKey).parseClaimsJws(jwt);
+				KeyPairManager.verifyJWT(jwt, newPersonalPublicKey);
 			}
 			catch (MalformedJwtException | UnsupportedJwtException e)
 			{
-				LOGGER.error("Malformed JWT found in DHT: " + jwt + " e: " + e.getMessage());
+				REQUEST_LOG.error("PUT", globalID, 400, "Malformed JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -451,7 +556,7 @@ public class RestService
 			}
 			catch (SignatureException e)
 			{
-				LOGGER.error("Malformed JWT found in DHT: " + jwt + e.getMessage());
+				REQUEST_LOG.error("PUT", globalID, 400, "Malformed signature for JWT", jwt, e);
 				
 				JSONObject response = new JSONObject();
 				
@@ -461,12 +566,22 @@ public class RestService
 				return new ResponseEntity<String>(response.toString(), HttpStatus.BAD_REQUEST);
 			}
 			
-			LOGGER.info("JWT for GlobalID " + globalID + " verified");
+			REQUEST_LOG.info("verified", "PUT", globalID, null);
+			
+			// per-platform write budget, charged only for verified records so forged platformGIDs cannot drain it
+			long delay = RateLimits.getInstance().admitPlatformWrite(newData.optString("platformGID"));
+			
+			if(delay > 0)
+			{
+				REQUEST_LOG.error("PUT", globalID, 429, "Rate limit exceeded for platformGID", jwt, null);
+				
+				return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header("Retry-After", RateLimits.retryAfter(delay)).body(RateLimits.rejection());
+			}
 			
 			// match new JWT to existing JWT
 			try
 			{
-				existingJWT = DHTManager.getInstance().get(globalID);
+				existingJWT = await(existingFetch);
 				
 				// GUID found. Ergo, we are updating an existing SocialRecord
 				
@@ -483,7 +598,7 @@ public class RestService
 				catch (SocialRecordIntegrityException e)
 				{
 					// tried to write socialrecord. found an existing one. the existing one failed the integrity test
-					LOGGER.error("Integrity exception found for existing SocialRecord: " + existingJWT + " e: " + e.getMessage());
+					REQUEST_LOG.error("PUT", globalID, 500, "Integrity exception found for existing SocialRecord", existingJWT, e);
 					
 					JSONObject response = new JSONObject();
 					
@@ -501,7 +616,7 @@ public class RestService
 				catch (InvalidKeySpecException | NoSuchAlgorithmException e)
 				{
 					// tried to write SocialRecord. found an existing one. the public key of the existing one couldnt be extracted
-					LOGGER.error("Malformed personal public key found in DHT: " + jwt + " e: " + e.getMessage());
+					REQUEST_LOG.error("PUT", globalID, 500, "Malformed personal public key found in DHT", existingJWT, e);
 					
 					JSONObject response = new JSONObject();
 					
@@ -514,12 +629,12 @@ public class RestService
 				// verify jwt
 				try
 				{
-					Jwts.parser().setSigningKey(existingPersonalPublicKey).parseClaimsJws(jwt);
+					KeyPairManager.verifyJWT(jwt, existingPersonalPublicKey);
 				}
 				catch (MalformedJwtException | UnsupportedJwtException e)
 				{
 					// tried to write SocialRecord. found an existing one. the existing one seems to be malformed jwt
-					LOGGER.error("Malformed JWT found in DHT: " + jwt + " e: " + e.getMessage());
+					REQUEST_LOG.error("PUT", globalID, 500, "Malformed JWT found in DHT", jwt, e);
 					
 					JSONObject response = new JSONObject();
 					
@@ -531,7 +646,7 @@ public class RestService
 				catch (SignatureException e)
 				{
 					// tried to write SocialRecord. found an existing one. the signature check of the existing one failed
-					LOGGER.error("Malformed JWT found in DHT: " + jwt + e.getMessage());
+					REQUEST_LOG.error("PUT", globalID, 500, "Signature of the new JWT does not match the existing personal public key", jwt, e);
 					
 					JSONObject response = new JSONObject();
 					
@@ -561,7 +676,7 @@ public class RestService
 				// everything is fine. overwrite existing dataset with new one
 				try
 				{
-					DHTManager.getInstance().put(globalID, jwt);
+					DHTManager.getInstance().put(globalID, jwt, deadline);
 				}
 				catch (IOException e)
 				{
@@ -574,7 +689,10 @@ public class RestService
 					return new ResponseEntity<String>(response.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 				}
 				
-				LOGGER.info("SocialRecord for [" + globalID + "] written to DHT: \n" + jwt);
+				REQUEST_LOG.info("written", "PUT", globalID, null);
+				
+				// only reached once the put was confirmed by the DHT
+				RecordCache.getInstance().put(globalID, jwt);
 				
 				JSONObject response = new JSONObject();
 				
@@ -595,11 +713,23 @@ public class RestService
 				
 				return new ResponseEntity<String>(response.toString(), HttpStatus.NOT_FOUND);
 			}
+			catch (DHTUnavailableException e)
+			{
+				REQUEST_LOG.error("PUT", globalID, 503, "DHT unavailable", jwt, e);
+				
+				return unavailable(e);
+			}
+			catch (DHTTimeoutException e)
+			{
+				REQUEST_LOG.error("PUT", globalID, 504, "DHT timeout", jwt, e);
+				
+				return timeout(e);
+			}
 		}
 		catch(JSONException e)
 		{
 			// somewhere, a json exception was thrown
-			LOGGER.error("Faulty JSON data in DHT: " + jwt + " e: " + e.getMessage());
+			REQUEST_LOG.error("PUT", globalID, 500, "Faulty JSON data in DHT", jwt, e);
 			
 			JSONObject response = new JSONObject();
 			
@@ -608,6 +738,12 @@ public class RestService
 			
 			return new ResponseEntity<String>(response.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}
+		finally
+		{
+			// a fetch still running after an early return is interrupted, so it releases its DHT slot right away
+			if(existingFetch != null)
+				existingFetch.cancel(true);
+		}
 		/*catch (IOException | ClassNotFoundException e)
 		{
 			// somewhere, a more severe exception was thrown
@@ -621,4 +757,100 @@ public class RestService
 			return new ResponseEntity<String>(response.toString(), HttpStatus.INTERNAL_SERVER_ERROR);
 		}*/
 	}
+	
+	/**
+	 * waits for a get started with DHTManager.getAsync()
+	 * 
+	 * @param future
+	 * @return the social record
+	 * @throws GIDNotFoundException
+	 * @throws DHTUnavailableException
+	 * @throws DHTTimeoutException
+	 */
+	private static String await(Future<String> future) throws GIDNotFoundException, DHTUnavailableException, DHTTimeoutException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			
+			if(cause instanceof GIDNotFoundException)
+				throw (GIDNotFoundException) cause;
+			if(cause instanceof DHTUnavailableException)
+				throw (DHTUnavailableException) cause;
+			if(cause instanceof DHTTimeoutException)
+				throw (DHTTimeoutException) cause;
+			if(cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			
+			throw new IllegalStateException(cause);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new DHTTimeoutException("interrupted while waiting for the DHT");
+		}
+	}
+	
+	/**
+	 * builds the response for DHT operations that were rejected because the DHT is overloaded or unavailable
+	 * 
+	 * @param e
+	 * @return 503 response with a Retry-After header
+	 */
+	private static ResponseEntity<String> unavailable(DHTUnavailableException e)
+	{
+		JSONObject response = new JSONObject();
+		
+		response.put("status", 503);
+		response.put("message", "Service temporarily unavailable: " + e.getMessage());
+		
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", Integer.toString(e.getRetryAfter())).body(response.toString());
+	}
+	
+	/**
+	 * builds the response for DHT operations that did not complete before the request deadline
+	 * 
+	 * @param e
+	 * @return 504 response
+	 */
+	private static ResponseEntity<String> timeout(DHTTimeoutException e)
+	{
+		JSONObject response = new JSONObject();
+		
+		response.put("status", 504);
+		response.put("message", "DHT operation timed out: " + e.getMessage());
+		
+		return new ResponseEntity<String>(response.toString(), HttpStatus.GATEWAY_TIMEOUT);
+	}
+	
+	/**
+	 * builds the response for a verified SocialRecord. Only GlobalIDs that resolved to a record
+	 * count for the warm-up, so lookups of unknown GlobalIDs cannot push real ones out of the hot
+	 * key list
+	 * 
+	 * @param globalID
+	 * @param jwt
+	 * @param stale true if the record is served from the cache because the DHT is unavailable
+	 * @return 200 response
+	 */
+	private static ResponseEntity<String> found(String globalID, String jwt, boolean stale)
+	{
+		WarmUp.getInstance().recordAccess(globalID);
+		
+		JSONObject response = new JSONObject();
+		
+		response.put("status", 200);
+		response.put("message", jwt);
+		
+		if(!stale)
+			return new ResponseEntity<String>(response.toString(), HttpStatus.OK);
+		
+		response.put("stale", true);
+		
+		return ResponseEntity.ok().header("Warning", "110 - \"Response is Stale\"").body(response.toString());
+	}
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+package net.sonic.gsls.controller;
+
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.model.SocialRecord;
+import net.sonic.gsls.model.SocialRecordIntegrityException;
+import net.sonic.gsls.util.HeavyHitters;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the cache warm across restarts. While the node is running, the most requested GlobalIDs
+ * are counted and periodically written to the hot key list. At startup, the records on the list
+ * are prefetched, verified and cached before the node reports ready. Disabled unless a hot key
+ * list file is configured. Using singleton pattern.
+ *
+ * @version 1
+ */
+public class WarmUp
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(WarmUp.class);
+	
+	private static WarmUp _singleton = null;
+	
+	private final HeavyHitters accesses = new HeavyHitters(2 * Config.getInstance().getWarmUpKeys());
+	
+	private final AtomicInteger total = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+	private volatile boolean finished = false;
+	
+	private final Counter revalidated = Metrics.getInstance().counter("gsls_warmup_records_total", "records prefetched at startup", "result", "revalidated");
+	private final Counter fetched = Metrics.getInstance().counter("gsls_warmup_records_total", "records prefetched at startup", "result", "fetched");
+	private final Counter failed = Metrics.getInstance().counter("gsls_warmup_records_total", "records prefetched at startup", "result", "failed");
+	
+	private WarmUp()
+	{
+		Metrics.getInstance().gauge("gsls_warmup_progress", "share of the hot key list prefetched at startup", () -> getProgress());
+	}
+	
+	public static synchronized WarmUp getInstance()
+	{
+		if(_singleton == null)
+		{
+			_singleton = new WarmUp();
+		}
+		return _singleton;
+	}
+	
+	/**
+	 * counts a request for the hot key list
+	 *
+	 * @param globalID
+	 */
+	public void recordAccess(String globalID)
+	{
+		if(isEnabled())
+			accesses.offer(globalID);
+	}
+	
+	/**
+	 * @return true if a hot key list file is configured
+	 */
+	public boolean isEnabled()
+	{
+		String file = Config.getInstance().getWarmUpFile();
+		
+		return file != null && !file.isEmpty();
+	}
+	
+	/**
+	 * writes the most requested GlobalIDs to the hot key list, most requested first. Counts are
+	 * halved afterwards, so the list follows the recent demand
+	 *
+	 * @throws IOException
+	 */
+	public void writeHotKeys() throws IOException
+	{
+		if(!isEnabled())
+			return;
+		
+		List<Map.Entry<String, Long>> counts = new ArrayList<Map.Entry<String, Long>>(accesses.estimates().entrySet());
+		accesses.decay();
+		
+		if(counts.isEmpty())
+			return;
+		
+		counts.sort(Collections.reverseOrder(Map.Entry.comparingByValue()));
+		
+		List<String> keys = new ArrayList<String>();
+		
+		for(int i=0; i<counts.size() && i<Config.getInstance().getWarmUpKeys(); i++)
+			keys.add(counts.get(i).getKey());
+		
+		File file = new File(Config.getInstance().getWarmUpFile());
+		File tmp = new File(file.getPath() + ".tmp");
+		
+		if(file.getParentFile() != null)
+			file.getParentFile().mkdirs();
+		
+		// replace the list atomically, a crash must not leave a partial list behind
+		Files.write(tmp.toPath(), keys, StandardCharsets.UTF_8);
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * prefetches the records on the hot key list with bounded parallelism. Records cached before
+	 * the restart are revalidated by digest, all others are fetched from the DHT and verified.
+	 * Returns once all records are cached or the warm-up timeout expired, or right away if the
+	 * warm-up is disabled
+	 */
+	public void run()
+	{
+		if(!isEnabled())
+		{
+			finished = true;
+			LOGGER.info("warm-up disabled, no hot key list configured");
+			return;
+		}
+		
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(Config.getInstance().getWarmUpTimeout());
+		File file = new File(Config.getInstance().getWarmUpFile());
+		List<String> keys;
+		
+		try
+		{
+			keys = file.isFile() ? Files.readAllLines(file.toPath(), StandardCharsets.UTF_8) : Collections.<String>emptyList();
+		}
+		catch (IOException e)
+		{
+			LOGGER.warn("cannot read hot key list " + file + ": " + e.getMessage());
+			keys = Collections.<String>emptyList();
+		}
+		
+		total.set(keys.size());
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Config.getInstance().getWarmUpParallelism(), runnable ->
+		{
+			Thread thread = new Thread(runnable, "warm-up");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		for(String key : keys)
+		{
+			executor.execute(() ->
+			{
+				if(System.nanoTime() < deadline)
+					prefetch(key.trim(), deadline);
+				
+				completed.incrementAndGet();
+			});
+		}
+		
+		executor.shutdown();
+		
+		try
+		{
+			if(!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+				executor.shutdownNow();
+		}
+		catch (InterruptedException e)
+		{
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		
+		finished = true;
+		LOGGER.info("warm-up prefetched " + completed.get() + " of " + total.get() + " hot keys in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+	}
+	
+	private void prefetch(String globalID, long deadline)
+	{
+		if(globalID.isEmpty())
+			return;
+		
+		if(RecordCache.getInstance().revalidate(globalID, deadline) != null)
+		{
+			revalidated.increment();
+			return;
+		}
+		
+		try
+		{
+			String jwt = DHTManager.getInstance().get(globalID, deadline);
+			SocialRecord socialRecord = SocialRecord.createFromVerifiedJWT(jwt);
+			
+			if(!socialRecord.getGlobalID().equals(globalID))
+				throw new SocialRecordIntegrityException("record does not belong to GlobalID " + globalID);
+			
+			RecordCache.getInstance().put(globalID, jwt);
+			fetched.increment();
+		}
+		catch (GIDNotFoundException | DHTUnavailableException | DHTTimeoutException | SocialRecordIntegrityException e)
+		{
+			failed.increment();
+		}
+	}
+	
+	/**
+	 * @return true once the warm-up completed or its deadline passed
+	 */
+	public boolean isFinished()
+	{
+		return finished;
+	}
+	
+	/**
+	 * @return share of the hot key list processed, 1 once the warm-up finished
+	 */
+	public double getProgress()
+	{
+		int keys = total.get();
+		
+		if(finished)
+			return 1;
+		
+		return keys == 0 ? 0 : (double) completed.get() / keys;
+	}
+	
+	public int getTotal()
+	{
+		return total.get();
+	}
+	
+	public int getCompleted()
+	{
+		return completed.get();
+	}
+}
@@ -0,0 +1,33 @@
+package net.sonic.gsls.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter
+ *
+ * @version 1
+ */
+public class Counter
+{
+	private final LongAdder value = new LongAdder();
+	
+	Counter()
+	{
+		
+	}
+	
+	public void increment()
+	{
+		value.increment();
+	}
+	
+	public void add(long amount)
+	{
+		value.add(amount);
+	}
+	
+	public long get()
+	{
+		return value.sum();
+	}
+}
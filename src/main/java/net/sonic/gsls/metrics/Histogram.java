@@ -0,0 +1,81 @@
+package net.sonic.gsls.metrics;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed, cumulative buckets in the Prometheus format. Values are
+ * recorded in nanoseconds and exported in seconds.
+ *
+ * @version 1
+ */
+public class Histogram
+{
+	// bucket upper bounds in seconds
+	static final double[] BUCKETS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+	
+	static final String[] BUCKET_LABELS = new String[BUCKETS.length];
+	
+	private static final long[] BUCKETS_NANOS = new long[BUCKETS.length];
+	
+	static
+	{
+		for(int i=0; i<BUCKETS.length; i++)
+		{
+			BUCKET_LABELS[i] = BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString();
+			BUCKETS_NANOS[i] = (long) (BUCKETS[i] * 1e9);
+		}
+	}
+	
+	private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+	private final LongAdder sum = new LongAdder();
+	
+	Histogram()
+	{
+		for(int i=0; i<counts.length; i++)
+			counts[i] = new LongAdder();
+	}
+	
+	/**
+	 * records a duration
+	 *
+	 * @param nanos
+	 */
+	public void observe(long nanos)
+	{
+		int i = 0;
+		while(i < BUCKETS_NANOS.length && nanos > BUCKETS_NANOS[i])
+			i++;
+		
+		counts[i].increment();
+		sum.add(nanos);
+	}
+	
+	/**
+	 * records the time passed since start
+	 *
+	 * @param start value of System.nanoTime() at the beginning of the measured section
+	 */
+	public void observeSince(long start)
+	{
+		observe(System.nanoTime() - start);
+	}
+	
+	/**
+	 * returns the non-cumulative bucket counts. The last entry counts values above the largest bucket
+	 *
+	 * @return long[]
+	 */
+	long[] counts()
+	{
+		long[] result = new long[counts.length];
+		for(int i=0; i<counts.length; i++)
+			result[i] = counts[i].sum();
+		return result;
+	}
+	
+	double sumSeconds()
+	{
+		return sum.sum() / 1e9;
+	}
+}
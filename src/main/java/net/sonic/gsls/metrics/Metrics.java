@@ -0,0 +1,163 @@
+package net.sonic.gsls.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Registry for counters, gauges and latency histograms. Exports all metrics in the Prometheus
+ * text exposition format. Using singleton pattern.
+ *
+ * Metrics are identified by name and an optional list of label name/value pairs, e.g.
+ * Metrics.getInstance().histogram("gsls_dht_get_duration_seconds", "...", "outcome", "found")
+ *
+ * @version 1
+ */
+public class Metrics
+{
+	private static final Metrics instance = new Metrics();
+	
+	private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<String, Family>();
+	
+	private Metrics()
+	{
+		
+	}
+	
+	public static Metrics getInstance()
+	{
+		return instance;
+	}
+	
+	public Counter counter(String name, String help, String... labels)
+	{
+		return (Counter) family(name, help, "counter").series.computeIfAbsent(labels(labels), l -> new Counter());
+	}
+	
+	public Histogram histogram(String name, String help, String... labels)
+	{
+		return (Histogram) family(name, help, "histogram").series.computeIfAbsent(labels(labels), l -> new Histogram());
+	}
+	
+	/**
+	 * registers a gauge whose value is read on every export. Registering the same series again replaces the supplier
+	 */
+	public void gauge(String name, String help, DoubleSupplier supplier, String... labels)
+	{
+		family(name, help, "gauge").series.put(labels(labels), supplier);
+	}
+	
+	private Family family(String name, String help, String type)
+	{
+		Family family = families.computeIfAbsent(name, n -> new Family(help, type));
+		
+		if(!family.type.equals(type))
+			throw new IllegalArgumentException("metric " + name + " is already registered as " + family.type);
+		
+		return family;
+	}
+	
+	/**
+	 * exports all metrics in the Prometheus text format (version 0.0.4)
+	 *
+	 * @return String
+	 */
+	public String export()
+	{
+		StringBuilder out = new StringBuilder();
+		
+		for(Map.Entry<String, Family> entry : families.entrySet())
+		{
+			String name = entry.getKey();
+			Family family = entry.getValue();
+			
+			out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+			out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+			
+			for(Map.Entry<String, Object> series : family.series.entrySet())
+			{
+				String labels = series.getKey();
+				Object metric = series.getValue();
+				
+				if(metric instanceof Counter)
+				{
+					sample(out, name, labels, ((Counter) metric).get());
+				}
+				else if(metric instanceof DoubleSupplier)
+				{
+					sample(out, name, labels, ((DoubleSupplier) metric).getAsDouble());
+				}
+				else if(metric instanceof Histogram)
+				{
+					Histogram histogram = (Histogram) metric;
+					long[] counts = histogram.counts();
+					long cumulative = 0;
+					String prefix = labels.isEmpty() ? "" : labels + ",";
+					
+					for(int i=0; i<Histogram.BUCKETS.length; i++)
+					{
+						cumulative += counts[i];
+						sample(out, name + "_bucket", prefix + "le=\"" + Histogram.BUCKET_LABELS[i] + "\"", cumulative);
+					}
+					cumulative += counts[Histogram.BUCKETS.length];
+					
+					sample(out, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+					sample(out, name + "_sum", labels, histogram.sumSeconds());
+					sample(out, name + "_count", labels, cumulative);
+				}
+			}
+		}
+		
+		return out.toString();
+	}
+	
+	private static void sample(StringBuilder out, String name, String labels, double value)
+	{
+		out.append(name);
+		if(!labels.isEmpty())
+			out.append('{').append(labels).append('}');
+		out.append(' ');
+		
+		if(value == Math.rint(value) && !Double.isInfinite(value))
+			out.append((long) value);
+		else
+			out.append(value);
+		
+		out.append('\n');
+	}
+	
+	private static String labels(String... pairs)
+	{
+		if(pairs.length % 2 != 0)
+			throw new IllegalArgumentException("labels must be given as name/value pairs");
+		
+		StringBuilder labels = new StringBuilder();
+		
+		for(int i=0; i<pairs.length; i+=2)
+		{
+			if(i > 0)
+				labels.append(',');
+			
+			labels.append(pairs[i]).append("=\"")
+				.append(pairs[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+				.append('"');
+		}
+		
+		return labels.toString();
+	}
+	
+	private static class Family
+	{
+		private final String help;
+		private final String type;
+		private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<String, Object>();
+		
+		private Family(String help, String type)
+		{
+			this.help = help;
+			this.type = type;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package net.sonic.gsls.metrics;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Records the duration and status of every REST request, labeled by endpoint pattern. The
+ * pattern is used instead of the request path to keep GlobalIDs out of the labels. Runs before
+ * the rate limit filter, so rejected requests are counted as well.
+ *
+ * @version 1
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsFilter extends OncePerRequestFilter
+{
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException
+	{
+		long start = System.nanoTime();
+		
+		try
+		{
+			chain.doFilter(request, response);
+		}
+		finally
+		{
+			Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+			
+			Metrics.getInstance().histogram("gsls_http_request_duration_seconds", "duration of REST requests",
+					"endpoint", request.getMethod() + " " + (pattern != null ? pattern : "unmatched"),
+					"status", Integer.toString(response.getStatus()))
+				.observeSince(start);
+		}
+	}
+}
@@ -1,12 +1,17 @@
 package net.sonic.gsls.model;
 
 import io.jsonwebtoken.impl.Base64UrlCodec;
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Histogram;
+import net.sonic.gsls.metrics.Metrics;
 import net.sonic.gsls.util.KeyPairManager;
+import net.sonic.gsls.util.PBKDF2;
+import net.sonic.gsls.util.TinyLFUCache;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
-import java.security.InvalidKeyException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
 /**
@@ -19,104 +24,79 @@ import java.security.NoSuchAlgorithmException;
 public class GID
 {
 	private static int ITERATIONS = 10000;
-	private static String HASH_ALGORITHM = "HmacSHA256";
+	
+	private static final Counter CACHE_HITS = Metrics.getInstance().counter("gsls_cache_requests_total", "cache lookups", "cache", "gid", "result", "hit");
+	private static final Counter CACHE_MISSES = Metrics.getInstance().counter("gsls_cache_requests_total", "cache lookups", "cache", "gid", "result", "miss");
+	private static final Histogram DERIVATION_DURATION = Metrics.getInstance().histogram("gsls_gid_derivation_duration_seconds", "duration of deriving a GlobalID");
+	
+	// (key, salt) digest -> derived hash
+	private static final TinyLFUCache<String, byte[]> CACHE = new TinyLFUCache<String, byte[]>("gid", Config.getInstance().getGidCacheSize());
 	
 	public static String createGID(String key, String salt)
 	{
-		byte[] hash = null;
-		
+		return new String(Base64UrlCodec.BASE64URL.encode(deriveHash(KeyPairManager.stripKey(key), salt)));
+	}
+	
+	/**
+	 * checks if the GlobalID was derived from the key and salt. Accepts the current base64url
+	 * encoding as well as the legacy base36 encoding. Results are cached per (key, salt)
+	 * 
+	 * @param globalID
+	 * @param key
+	 * @param salt
+	 * @return true if the GlobalID matches
+	 */
+	public static boolean verifyGID(String globalID, String key, String salt)
+	{
 		key = KeyPairManager.stripKey(key);
 		
-		try
-		{
-			hash = PBKDF2.deriveKey(key.getBytes(), salt.getBytes(), ITERATIONS, 32); // 32 bytes == 256 bit
-		}
-		catch (NoSuchAlgorithmException e)
+		String cacheKey = cacheKey(key, salt);
+		byte[] hash = CACHE.get(cacheKey);
+		
+		if(hash != null)
 		{
-			e.printStackTrace();
+			CACHE_HITS.increment();
 		}
-		catch (InvalidKeyException e)
+		else
 		{
-			e.printStackTrace();
+			CACHE_MISSES.increment();
+			hash = deriveHash(key, salt);
+			CACHE.put(cacheKey, hash);
 		}
-		//return (new BigInteger(DatatypeConverter.printHexBinary(hash), 16)).toString(36).toUpperCase(); //<-- base36 encoding
-		return new String(Base64UrlCodec.BASE64URL.encode(hash));
+		
+		return globalID.equals(Base64UrlCodec.BASE64URL.encode(hash))
+			|| globalID.equals(new BigInteger(1, hash).toString(36).toUpperCase());
 	}
 	
-	private static class PBKDF2
+	private static byte[] deriveHash(String strippedKey, String salt)
 	{
-		public static byte[] deriveKey(byte[] password, byte[] salt, int iterationCount, int dkLen) throws java.security.NoSuchAlgorithmException, java.security.InvalidKeyException
+		long start = System.nanoTime();
+		
+		try
 		{
-			SecretKeySpec keyspec = new SecretKeySpec(password, HASH_ALGORITHM);
-			Mac prf = Mac.getInstance(HASH_ALGORITHM);
-			prf.init(keyspec);
-			
-			// Note: hLen, dkLen, l, r, T, F, etc. are horrible names for
-			//       variables and functions in this day and age, but they
-			//       reflect the terse symbols used in RFC 2898 to describe
-			//       the PBKDF2 algorithm, which improves validation of the
-			//       code vs. the RFC.
-			//
-			// dklen is expressed in bytes. (16 for a 128-bit key)
-			
-			int hLen = prf.getMacLength();   // 20 for SHA1
-			int l = Math.max(dkLen, hLen); //  1 for 128bit (16-byte) keys
-			int r = dkLen - (l - 1) * hLen;      // 16 for 128bit (16-byte) keys
-			byte T[] = new byte[l * hLen];
-			int ti_offset = 0;
-			
-			for(int i=1; i<=l; i++)
-			{
-				F(T, ti_offset, prf, salt, iterationCount, i);
-				ti_offset += hLen;
-			}
-			
-			if(r < hLen)
-			{
-				// Incomplete last block
-				byte DK[] = new byte[dkLen];
-				System.arraycopy(T, 0, DK, 0, dkLen);
-				return DK;
-			}
-			
-			return T;
+			return PBKDF2.deriveKey(strippedKey.getBytes(), salt.getBytes(), ITERATIONS, 32); // 32 bytes == 256 bit
 		}
-		
-		private static void F(byte[] dest, int offset, Mac prf, byte[] S, int c, int blockIndex)
+		finally
 		{
-			final int hLen = prf.getMacLength();
-			byte U_r[] = new byte[hLen];
-			// U0 = S || INT (i);
-			byte U_i[] = new byte[S.length + 4];
-			
-			System.arraycopy(S, 0, U_i, 0, S.length);
-			INT(U_i, S.length, blockIndex);
-			
-			for(int i=0; i<c; i++)
-			{
-				U_i = prf.doFinal(U_i);
-				xor(U_r, U_i);
-			}
-			
-			System.arraycopy(U_r, 0, dest, offset, hLen);
+			DERIVATION_DURATION.observeSince(start);
 		}
-		
-		private static void xor(byte[] dest, byte[] src)
+	}
+	
+	private static String cacheKey(String strippedKey, String salt)
+	{
+		try
 		{
-			for(int i=0; i<dest.length; i++)
-			{
-				dest[i] ^= src[i];
-			}
+			// the stripped key contains no line breaks, so the separator keeps (key, salt) pairs unambiguous
+			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+			sha256.update(strippedKey.getBytes(StandardCharsets.UTF_8));
+			sha256.update((byte) '\n');
+			sha256.update(salt.getBytes(StandardCharsets.UTF_8));
+			
+			return Base64UrlCodec.BASE64URL.encode(sha256.digest());
 		}
-		
-		private static void INT(byte[] dest, int offset, int i)
+		catch (NoSuchAlgorithmException e)
 		{
-			dest[offset + 0] = (byte) (i / (256 * 256 * 256));
-			dest[offset + 1] = (byte) (i / (256 * 256));
-			dest[offset + 2] = (byte) (i / (256));
-			dest[offset + 3] = (byte) (i);
+			throw new IllegalStateException(e);
 		}
-		
-		private PBKDF2() {}
 	}
-}
\ No newline at end of file
+}
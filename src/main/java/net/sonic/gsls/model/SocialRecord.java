@@ -2,6 +2,15 @@ package net.sonic.gsls.model;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+import net.sonic.gsls.metrics.Histogram;
+import net.sonic.gsls.metrics.Metrics;
+import net.sonic.gsls.util.KeyPairManager;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.impl.Base64UrlCodec;
+
 import org.apache.commons.codec.binary.Base64;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.loader.SchemaLoader;
@@ -9,6 +18,7 @@ import org.json.JSONTokener;
 
 import org.everit.json.schema.ValidationException;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 /**
@@ -20,6 +30,8 @@ import org.json.JSONObject;
  */
 public class SocialRecord
 {
+	private static final Histogram VALIDATION_DURATION = Metrics.getInstance().histogram("gsls_record_validation_duration_seconds", "duration of the SocialRecord schema and field validation");
+	
 	private String _context;			// JSON-LD
 	private String _type;				// JSON-LD
 	private String type;
@@ -63,6 +75,53 @@ public class SocialRecord
 		return sr;
 	}
 	
+	/**
+	 * decodes a SocialRecord JWT without validating the record or verifying the signature. Only
+	 * for ordering versions that are verified afterwards
+	 * 
+	 * @param jwt
+	 * @return the unverified SocialRecord
+	 * @throws SocialRecordIntegrityException if the JWT or the record cannot be decoded
+	 */
+	public static SocialRecord createFromUnverifiedJWT(String jwt) throws SocialRecordIntegrityException
+	{
+		try
+		{
+			JSONObject jwtPayload = new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[1]));
+			
+			return createFromJSONObject(new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwtPayload.getString("socialRecord"))));
+		}
+		catch (JSONException | IllegalArgumentException | ArrayIndexOutOfBoundsException e)
+		{
+			throw new SocialRecordIntegrityException("invalid SocialRecord JWT: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * decodes a SocialRecord JWT, validates the record and verifies the JWT signature with the
+	 * personal public key of the record
+	 * 
+	 * @param jwt
+	 * @return the verified SocialRecord
+	 * @throws SocialRecordIntegrityException if the JWT is malformed, the record is invalid or the signature does not match
+	 */
+	public static SocialRecord createFromVerifiedJWT(String jwt) throws SocialRecordIntegrityException
+	{
+		SocialRecord socialRecord = createFromUnverifiedJWT(jwt);
+		
+		try
+		{
+			socialRecord.validate();
+			KeyPairManager.verifyJWT(jwt, KeyPairManager.decodePublicKey(socialRecord.getPersonalPublicKey()));
+			
+			return socialRecord;
+		}
+		catch (JSONException | IllegalArgumentException | JwtException | GeneralSecurityException e)
+		{
+			throw new SocialRecordIntegrityException("invalid SocialRecord JWT: " + e.getMessage());
+		}
+	}
+	
 	public JSONObject exportJSONObject()
 	{
 		JSONObject json = new JSONObject();
@@ -215,6 +274,20 @@ public class SocialRecord
 	}
 	
 	public boolean validate() throws SocialRecordIntegrityException
+	{
+		long start = System.nanoTime();
+		
+		try
+		{
+			return validateRecord();
+		}
+		finally
+		{
+			VALIDATION_DURATION.observeSince(start);
+		}
+	}
+	
+	private boolean validateRecord() throws SocialRecordIntegrityException
 	{
 		try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("schema.json"))
 		{
@@ -239,8 +312,7 @@ public class SocialRecord
 		
 		if(getGlobalID().isEmpty())
 			throw new SocialRecordIntegrityException("mandatory parameter 'globalID' missing");
-		/*if(!getGlobalID().equals(GID.createGID(this.getPersonalPublicKey(), this.getSalt())))
-			throw new SocialRecordIntegrityException("illegal parameter value for 'globalID'");*/
+		// the binding of GlobalID and personal public key is checked on write, see verifyGlobalID()
 		
 		if(getDatetime().isEmpty())
 			throw new SocialRecordIntegrityException("mandatory parameter 'datetime' missing");
@@ -258,12 +330,16 @@ public class SocialRecord
 		String stringtobechecked = getPersonalPublicKey().substring(26, getPersonalPublicKey().length()-24);
 		if (!Base64.isArrayByteBase64(stringtobechecked.getBytes()))
 			throw new SocialRecordIntegrityException("invalid 'personalPublicKey' characterset");
+		if(KeyPairManager.getPublicKeyAlgorithm(getPersonalPublicKey()) == null)
+			throw new SocialRecordIntegrityException("unsupported 'personalPublicKey' algorithm");
 		
 		if(getAccountPublicKey().isEmpty())
 			throw new SocialRecordIntegrityException("mandatory parameter 'accountPublicKey' missing");
 		stringtobechecked = getAccountPublicKey().substring(26, getAccountPublicKey().length()-24);
 		if (!Base64.isArrayByteBase64(stringtobechecked.getBytes()))
 			throw new SocialRecordIntegrityException("invalid 'accountPublicKey' characterset");
+		if(KeyPairManager.getPublicKeyAlgorithm(getAccountPublicKey()) == null)
+			throw new SocialRecordIntegrityException("unsupported 'accountPublicKey' algorithm");
 		
 		if (getSalt().isEmpty())
 			throw new SocialRecordIntegrityException("mandatory parameter 'salt' missing");
@@ -280,4 +356,18 @@ public class SocialRecord
 		
 		return true;
 	}
+	
+	/**
+	 * checks that the GlobalID was derived from the personal public key and the salt
+	 * 
+	 * @return true
+	 * @throws SocialRecordIntegrityException if the GlobalID does not match
+	 */
+	public boolean verifyGlobalID() throws SocialRecordIntegrityException
+	{
+		if(!GID.verifyGID(getGlobalID(), getPersonalPublicKey(), getSalt()))
+			throw new SocialRecordIntegrityException("illegal parameter value for 'globalID'");
+		
+		return true;
+	}
 }
\ No newline at end of file
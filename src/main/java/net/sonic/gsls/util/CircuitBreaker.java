@@ -0,0 +1,86 @@
+package net.sonic.gsls.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker for a remote dependency. The circuit opens after a number of consecutive
+ * failures or when it is opened explicitly. While it is open, callers fail right away instead of
+ * waiting for the dependency to time out. The circuit is only closed again by a successful probe,
+ * so no caller request is used to test for recovery.
+ *
+ * @version 1
+ */
+public class CircuitBreaker
+{
+	private final int failureThreshold;
+	
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	private volatile boolean open = false;
+	private volatile long openedAt = 0;
+	
+	/**
+	 * @param failureThreshold number of consecutive failures after which the circuit opens
+	 */
+	public CircuitBreaker(int failureThreshold)
+	{
+		this.failureThreshold = failureThreshold;
+	}
+	
+	public boolean isOpen()
+	{
+		return open;
+	}
+	
+	public void recordSuccess()
+	{
+		consecutiveFailures.set(0);
+	}
+	
+	/**
+	 * @return true if this failure opened the circuit
+	 */
+	public boolean recordFailure()
+	{
+		if(consecutiveFailures.incrementAndGet() >= failureThreshold && !open)
+			return open();
+		
+		return false;
+	}
+	
+	/**
+	 * @return true if the circuit was closed before
+	 */
+	public synchronized boolean open()
+	{
+		if(open)
+			return false;
+		
+		openedAt = System.currentTimeMillis();
+		open = true;
+		
+		return true;
+	}
+	
+	/**
+	 * @return true if the circuit was open before
+	 */
+	public synchronized boolean close()
+	{
+		consecutiveFailures.set(0);
+		
+		if(!open)
+			return false;
+		
+		open = false;
+		
+		return true;
+	}
+	
+	/**
+	 * @return time the circuit was last opened, in milliseconds since the epoch
+	 */
+	public long getOpenedAt()
+	{
+		return openedAt;
+	}
+}
@@ -0,0 +1,128 @@
+package net.sonic.gsls.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptive limit for the number of concurrent operations (AIMD).
+ *
+ * The limit grows by one for every limit operations that complete in time and shrinks by the
+ * backoff ratio for every operation that is dropped or takes longer than the latency tolerance
+ * times the baseline latency. The baseline is a slow moving average of the observed latency, kept
+ * per operation type so that fast operations are not judged against the latency of slow ones and
+ * vice versa. The limit follows the latency gradient instead of a fixed threshold. Operations
+ * above the limit are rejected right away instead of being queued.
+ *
+ * The limit is decreased at most once per window: only operations that started after the last
+ * decrease can decrease it again, so a burst of slow operations that were all in flight at the
+ * same time counts as one congestion signal.
+ *
+ * @version 1
+ */
+public class ConcurrencyLimiter
+{
+	private static final double BASELINE_ALPHA = 0.01;
+	
+	private final int minLimit;
+	private final int maxLimit;
+	private final double latencyTolerance;
+	private final double backoffRatio;
+	
+	private final AtomicInteger inFlight = new AtomicInteger();
+	
+	private volatile double limit;
+	private final Map<String, Double> baselines = new HashMap<String, Double>();	// nanoseconds per operation type, guarded by this
+	private long lastDecrease = Long.MIN_VALUE;	// System.nanoTime(), guarded by this
+	
+	/**
+	 * @param initialLimit
+	 * @param minLimit
+	 * @param maxLimit
+	 * @param latencyTolerance factor by which an operation may exceed the baseline latency before the limit is decreased
+	 * @param backoffRatio factor applied to the limit on congestion
+	 */
+	public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double latencyTolerance, double backoffRatio)
+	{
+		this.limit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTolerance = latencyTolerance;
+		this.backoffRatio = backoffRatio;
+	}
+	
+	/**
+	 * @return true if the operation may start. release() must be called once it completes
+	 */
+	public boolean tryAcquire()
+	{
+		while(true)
+		{
+			int current = inFlight.get();
+			
+			if(current >= (int) limit)
+				return false;
+			
+			if(inFlight.compareAndSet(current, current + 1))
+				return true;
+		}
+	}
+	
+	/**
+	 * @param operation type of the operation, e.g. get or put. Each type has its own baseline latency
+	 * @param latency duration of the operation in nanoseconds
+	 * @param dropped true if the operation timed out or was otherwise lost
+	 */
+	public void release(String operation, long latency, boolean dropped)
+	{
+		int current = inFlight.getAndDecrement();
+		long now = System.nanoTime();
+		
+		synchronized(this)
+		{
+			Double baseline = baselines.get(operation);
+			
+			if(baseline == null)
+				baseline = (double) latency;
+			
+			if(dropped || latency > baseline * latencyTolerance)
+			{
+				// operations that were already running at the last decrease do not decrease the limit again
+				if(now - latency > lastDecrease)
+				{
+					limit = Math.max(minLimit, limit * backoffRatio);
+					lastDecrease = now;
+				}
+			}
+			else if(current * 2 >= limit)
+			{
+				// only grow while the limit is actually used
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+			
+			if(!dropped)
+				baseline += BASELINE_ALPHA * (latency - baseline);
+			
+			baselines.put(operation, baseline);
+		}
+	}
+	
+	/**
+	 * releases an operation without adapting the limit, e.g. if it was cancelled by the caller
+	 * and its latency says nothing about the congestion
+	 */
+	public void ignore()
+	{
+		inFlight.decrementAndGet();
+	}
+	
+	public int getLimit()
+	{
+		return (int) limit;
+	}
+	
+	public int getInFlight()
+	{
+		return inFlight.get();
+	}
+}
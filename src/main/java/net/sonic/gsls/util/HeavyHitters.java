@@ -0,0 +1,256 @@
+package net.sonic.gsls.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the most frequent keys of a stream in constant memory (Space-Saving algorithm).
+ *
+ * At most capacity keys are counted. A key that is not counted yet replaces the key with the
+ * smallest count and inherits that count as its possible overestimation. Every key occurring
+ * more often than 1/capacity of the stream is guaranteed to be counted, and the count minus the
+ * overestimation never exceeds the true frequency. decay() halves all counts, so keys that are no
+ * longer requested fall out of the summary over time.
+ *
+ * Counters are kept in a Stream-Summary: a list of buckets in ascending count order, each holding
+ * the counters with that count. Incrementing a counter moves it to the neighbouring bucket and the
+ * counter to replace is taken from the first bucket, so offer() runs in constant time regardless
+ * of the capacity.
+ *
+ * @version 1
+ */
+public class HeavyHitters
+{
+	private static class Bucket
+	{
+		private long count;
+		private Bucket previous;
+		private Bucket next;
+		private Counter first;
+		
+		private Bucket(long count)
+		{
+			this.count = count;
+		}
+		
+		private void add(Counter counter)
+		{
+			counter.bucket = this;
+			counter.previous = null;
+			counter.next = first;
+			
+			if(first != null)
+				first.previous = counter;
+			
+			first = counter;
+		}
+		
+		private void remove(Counter counter)
+		{
+			if(counter.previous != null)
+				counter.previous.next = counter.next;
+			else
+				first = counter.next;
+			
+			if(counter.next != null)
+				counter.next.previous = counter.previous;
+			
+			counter.previous = null;
+			counter.next = null;
+		}
+	}
+	
+	private static class Counter
+	{
+		private String key;
+		private long overestimation;
+		private Bucket bucket;
+		private Counter previous;
+		private Counter next;
+	}
+	
+	private final int capacity;
+	private final Map<String, Counter> counters;
+	
+	// bucket with the smallest count
+	private Bucket lowest = null;
+	
+	/**
+	 * @param capacity number of keys counted
+	 */
+	public HeavyHitters(int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.counters = new HashMap<String, Counter>(this.capacity * 2);
+	}
+	
+	public synchronized void offer(String key)
+	{
+		Counter counter = counters.get(key);
+		
+		if(counter != null)
+		{
+			increment(counter);
+			return;
+		}
+		
+		if(counters.size() < capacity)
+		{
+			counter = new Counter();
+			counter.key = key;
+			counters.put(key, counter);
+			
+			if(lowest == null || lowest.count != 1)
+				insertAfter(null, new Bucket(1));
+			
+			lowest.add(counter);
+			return;
+		}
+		
+		// replace one of the keys with the smallest count
+		counter = lowest.first;
+		counters.remove(counter.key);
+		
+		counter.key = key;
+		counter.overestimation = lowest.count;
+		counters.put(key, counter);
+		
+		increment(counter);
+	}
+	
+	/**
+	 * moves the counter to the bucket for its count plus one
+	 */
+	private void increment(Counter counter)
+	{
+		Bucket bucket = counter.bucket;
+		Bucket next = bucket.next;
+		long count = bucket.count + 1;
+		
+		bucket.remove(counter);
+		
+		if(next != null && next.count == count)
+		{
+			next.add(counter);
+		}
+		else if(bucket.first == null)
+		{
+			// the counter was alone in its bucket. the bucket stays in order with the new count
+			bucket.count = count;
+			bucket.add(counter);
+			return;
+		}
+		else
+		{
+			Bucket created = new Bucket(count);
+			insertAfter(bucket, created);
+			created.add(counter);
+		}
+		
+		if(bucket.first == null)
+			unlink(bucket);
+	}
+	
+	/**
+	 * @param previous the bucket to insert after, null to insert as the lowest bucket
+	 */
+	private void insertAfter(Bucket previous, Bucket bucket)
+	{
+		bucket.previous = previous;
+		bucket.next = previous == null ? lowest : previous.next;
+		
+		if(bucket.next != null)
+			bucket.next.previous = bucket;
+		
+		if(previous == null)
+			lowest = bucket;
+		else
+			previous.next = bucket;
+	}
+	
+	private void unlink(Bucket bucket)
+	{
+		if(bucket.previous != null)
+			bucket.previous.next = bucket.next;
+		else
+			lowest = bucket.next;
+		
+		if(bucket.next != null)
+			bucket.next.previous = bucket.previous;
+	}
+	
+	/**
+	 * @param key
+	 * @return lower bound of the number of occurrences of the key since it was last evicted, 0 if it is not counted
+	 */
+	public synchronized long estimate(String key)
+	{
+		Counter counter = counters.get(key);
+		
+		return counter == null ? 0 : counter.bucket.count - counter.overestimation;
+	}
+	
+	/**
+	 * @return lower bounds of the counts of all counted keys
+	 */
+	public synchronized Map<String, Long> estimates()
+	{
+		Map<String, Long> estimates = new HashMap<String, Long>();
+		
+		for(Counter counter : counters.values())
+			estimates.put(counter.key, counter.bucket.count - counter.overestimation);
+		
+		return estimates;
+	}
+	
+	/**
+	 * halves all counts and drops the keys whose count reaches zero. Halving keeps the order of
+	 * the buckets, buckets whose counts become equal are merged
+	 */
+	public synchronized void decay()
+	{
+		Bucket bucket = lowest;
+		Bucket kept = null;
+		lowest = null;
+		
+		while(bucket != null)
+		{
+			Bucket next = bucket.next;
+			long count = bucket.count / 2;
+			Counter counter = bucket.first;
+			
+			if(count == 0)
+			{
+				for(; counter != null; counter = counter.next)
+					counters.remove(counter.key);
+			}
+			else if(kept != null && kept.count == count)
+			{
+				while(counter != null)
+				{
+					Counter following = counter.next;
+					counter.overestimation /= 2;
+					kept.add(counter);
+					counter = following;
+				}
+			}
+			else
+			{
+				for(; counter != null; counter = counter.next)
+					counter.overestimation /= 2;
+				
+				bucket.count = count;
+				bucket.next = null;
+				insertAfter(kept, bucket);
+				kept = bucket;
+			}
+			
+			bucket = next;
+		}
+	}
+	
+	public synchronized int size()
+	{
+		return counters.size();
+	}
+}
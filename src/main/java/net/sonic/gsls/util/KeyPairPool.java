@@ -0,0 +1,132 @@
+package net.sonic.gsls.util;
+
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a number of freshly generated key pairs ready. Worker threads refill the pool in the
+ * background as soon as a key pair is taken. If the pool runs dry, the key pair is generated on
+ * the calling thread.
+ *
+ * @version 1
+ */
+public class KeyPairPool
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(KeyPairPool.class);
+	
+	private final BlockingQueue<KeyPair> pool;
+	private final Thread[] workers;
+	private final int lowWatermark;
+	private final AtomicInteger lowestAvailable;
+	
+	private final Counter hits = Metrics.getInstance().counter("gsls_keypair_pool_requests_total", "key pair requests", "result", "hit");
+	private final Counter misses = Metrics.getInstance().counter("gsls_keypair_pool_requests_total", "key pair requests", "result", "miss");
+	private final Counter belowLowWatermark = Metrics.getInstance().counter("gsls_keypair_pool_below_low_watermark_total", "key pair requests that left the pool below its low watermark");
+	
+	/**
+	 * @param size number of key pairs kept ready
+	 * @param lowWatermark pool level below which takes are counted as running low
+	 * @param workerCount number of generator threads
+	 */
+	public KeyPairPool(int size, int lowWatermark, int workerCount)
+	{
+		this.pool = new ArrayBlockingQueue<KeyPair>(size);
+		this.lowWatermark = lowWatermark;
+		this.lowestAvailable = new AtomicInteger(size);
+		this.workers = new Thread[workerCount];
+		
+		Metrics.getInstance().gauge("gsls_keypair_pool_available", "key pairs ready in the pool", () -> pool.size());
+		Metrics.getInstance().gauge("gsls_keypair_pool_lowest_available", "lowest pool level observed after a take", () -> lowestAvailable.get());
+		
+		for(int i=0; i<workerCount; i++)
+		{
+			workers[i] = new Thread(this::generate, "keypair-pool-" + i);
+			workers[i].setDaemon(true);
+			workers[i].setPriority(Thread.MIN_PRIORITY);
+			workers[i].start();
+		}
+	}
+	
+	private void generate()
+	{
+		try
+		{
+			while(!Thread.currentThread().isInterrupted())
+				pool.put(KeyPairManager.generateKeyPair());
+		}
+		catch (InterruptedException e)
+		{
+			// pool stopped
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			LOGGER.error("key pair generation failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * returns a pooled key pair, or generates one if the pool is empty
+	 *
+	 * @return KeyPair
+	 * @throws NoSuchAlgorithmException
+	 */
+	public KeyPair take() throws NoSuchAlgorithmException
+	{
+		return taken(pool.poll());
+	}
+	
+	/**
+	 * returns a pooled key pair, waiting up to the timeout for the workers to generate one.
+	 * Generates the key pair on the calling thread if none becomes available in time
+	 *
+	 * @param timeout
+	 * @param unit
+	 * @return KeyPair
+	 * @throws NoSuchAlgorithmException
+	 * @throws InterruptedException
+	 */
+	public KeyPair take(long timeout, TimeUnit unit) throws NoSuchAlgorithmException, InterruptedException
+	{
+		return taken(pool.poll(timeout, unit));
+	}
+	
+	private KeyPair taken(KeyPair keyPair) throws NoSuchAlgorithmException
+	{
+		if(keyPair == null)
+		{
+			misses.increment();
+			lowestAvailable.set(0);
+			return KeyPairManager.generateKeyPair();
+		}
+		
+		hits.increment();
+		
+		int available = pool.size();
+		lowestAvailable.accumulateAndGet(available, Math::min);
+		if(available < lowWatermark)
+			belowLowWatermark.increment();
+		
+		return keyPair;
+	}
+	
+	public int available()
+	{
+		return pool.size();
+	}
+	
+	public void stop()
+	{
+		for(Thread worker : workers)
+			worker.interrupt();
+	}
+}
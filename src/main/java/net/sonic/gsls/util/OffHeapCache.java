@@ -0,0 +1,209 @@
+package net.sonic.gsls.util;
+
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Cache that keeps its values outside the Java heap, in direct ByteBuffer slabs.
+ *
+ * Entries are appended to the current slab. Once it is full, writing continues in the next slab,
+ * and when all slabs are in use the oldest slab is evicted as a whole and reused. Only a small
+ * index from the 64 bit hash of the key to the slab and offset of the entry lives on the heap, so
+ * the cache can grow to gigabytes without adding to the garbage collector's work. Slabs are
+ * allocated on first use. The key is stored with the entry, so hash collisions are detected on
+ * lookup and answered as a miss. Replaced and removed entries keep their space until their slab
+ * is evicted.
+ *
+ * @version 1
+ */
+public class OffHeapCache
+{
+	// key length, value length
+	private static final int HEADER_SIZE = 8;
+	
+	private final ByteBuffer[] slabs;
+	private final int slabSize;
+	private int current = 0;
+	
+	// key hash -> slab index (upper 32 bits) and offset (lower 32 bits)
+	private final ConcurrentHashMap<Long, Long> index = new ConcurrentHashMap<Long, Long>();
+	
+	// slab eviction resets the buffers, so reads must not overlap with it
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter evictions;
+	
+	/**
+	 * @param name cache label of the metrics
+	 * @param capacity maximum size in bytes
+	 * @param slabSize size of a slab in bytes. Entries larger than a slab are not cached
+	 */
+	public OffHeapCache(String name, long capacity, int slabSize)
+	{
+		this.slabSize = slabSize;
+		this.slabs = new ByteBuffer[(int) Math.max(2, capacity / slabSize)];
+		
+		this.hits = Metrics.getInstance().counter("gsls_offheap_cache_requests_total", "off-heap cache lookups", "cache", name, "result", "hit");
+		this.misses = Metrics.getInstance().counter("gsls_offheap_cache_requests_total", "off-heap cache lookups", "cache", name, "result", "miss");
+		this.evictions = Metrics.getInstance().counter("gsls_offheap_cache_slab_evictions_total", "slabs evicted from an off-heap cache", "cache", name);
+		
+		Metrics.getInstance().gauge("gsls_offheap_cache_entries", "entries held by an off-heap cache", () -> index.size(), "cache", name);
+		Metrics.getInstance().gauge("gsls_offheap_cache_allocated_bytes", "direct memory allocated by an off-heap cache", () -> getAllocated(), "cache", name);
+	}
+	
+	/**
+	 * @param key
+	 * @return a copy of the value, or null if the key is not cached
+	 */
+	public byte[] get(String key)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		
+		lock.readLock().lock();
+		
+		try
+		{
+			Long location = index.get(hash(keyBytes));
+			
+			if(location != null)
+			{
+				ByteBuffer slab = slabs[(int) (location >>> 32)].duplicate();
+				slab.position((int) (long) location);
+				
+				int keyLength = slab.getInt();
+				int valueLength = slab.getInt();
+				byte[] storedKey = new byte[keyLength];
+				slab.get(storedKey);
+				
+				if(Arrays.equals(keyBytes, storedKey))
+				{
+					byte[] value = new byte[valueLength];
+					slab.get(value);
+					
+					hits.increment();
+					return value;
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		misses.increment();
+		return null;
+	}
+	
+	/**
+	 * @param key
+	 * @param value
+	 * @return false if the entry is larger than a slab
+	 */
+	public boolean put(String key, byte[] value)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		int size = HEADER_SIZE + keyBytes.length + value.length;
+		
+		if(size > slabSize)
+			return false;
+		
+		lock.writeLock().lock();
+		
+		try
+		{
+			if(slabs[current] == null)
+				slabs[current] = ByteBuffer.allocateDirect(slabSize);
+			
+			if(slabs[current].remaining() < size)
+			{
+				current = (current + 1) % slabs.length;
+				
+				if(slabs[current] == null)
+					slabs[current] = ByteBuffer.allocateDirect(slabSize);
+				else
+					evict(current);
+			}
+			
+			ByteBuffer slab = slabs[current];
+			long location = ((long) current << 32) | slab.position();
+			
+			slab.putInt(keyBytes.length);
+			slab.putInt(value.length);
+			slab.put(keyBytes);
+			slab.put(value);
+			
+			index.put(hash(keyBytes), location);
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+		
+		return true;
+	}
+	
+	public void remove(String key)
+	{
+		index.remove(hash(key.getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * drops all entries of a slab and makes it available for writing
+	 */
+	private void evict(int slab)
+	{
+		Iterator<Map.Entry<Long, Long>> iterator = index.entrySet().iterator();
+		
+		while(iterator.hasNext())
+			if((int) (iterator.next().getValue() >>> 32) == slab)
+				iterator.remove();
+		
+		slabs[slab].clear();
+		evictions.increment();
+	}
+	
+	public int size()
+	{
+		return index.size();
+	}
+	
+	/**
+	 * @return bytes of direct memory allocated for slabs
+	 */
+	public long getAllocated()
+	{
+		long allocated = 0;
+		
+		for(ByteBuffer slab : slabs)
+			if(slab != null)
+				allocated += slab.capacity();
+		
+		return allocated;
+	}
+	
+	/**
+	 * 64 bit FNV-1a hash
+	 */
+	private static long hash(byte[] bytes)
+	{
+		long hash = 0xcbf29ce484222325L;
+		
+		for(byte b : bytes)
+		{
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		
+		return hash;
+	}
+}
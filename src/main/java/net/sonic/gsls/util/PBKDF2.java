@@ -0,0 +1,206 @@
+package net.sonic.gsls.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * PBKDF2 (RFC 2898) with HMAC-SHA256.
+ *
+ * The HMAC inner and outer pad blocks are hashed once per derivation. Every iteration after the
+ * first then costs exactly two SHA-256 block compressions on preallocated buffers, without the
+ * per-iteration array allocations and pad re-hashing of javax.crypto.Mac.doFinal().
+ *
+ * @version 1
+ */
+public class PBKDF2
+{
+	private static final int BLOCK_LENGTH = 64;
+	private static final int HASH_LENGTH = 32;
+	
+	// bit length of an HMAC inner or outer message after the first iteration: one pad block plus one hash
+	private static final int ITERATION_MESSAGE_BITS = (BLOCK_LENGTH + HASH_LENGTH) * 8;
+	
+	private static final int[] IV = {
+		0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+	};
+	
+	private static final int[] K = {
+		0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
+		0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
+		0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
+		0x983e5152, 0xa831c66d, 0xb00327c8, 0xbf597fc7, 0xc6e00bf3, 0xd5a79147, 0x06ca6351, 0x14292967,
+		0x27b70a85, 0x2e1b2138, 0x4d2c6dfc, 0x53380d13, 0x650a7354, 0x766a0abb, 0x81c2c92e, 0x92722c85,
+		0xa2bfe8a1, 0xa81a664b, 0xc24b8b70, 0xc76c51a3, 0xd192e819, 0xd6990624, 0xf40e3585, 0x106aa070,
+		0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
+		0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
+	};
+	
+	private PBKDF2()
+	{
+		
+	}
+	
+	/**
+	 * derives a key with PBKDF2-HMAC-SHA256
+	 *
+	 * @param password
+	 * @param salt
+	 * @param iterationCount
+	 * @param dkLen length of the derived key in bytes
+	 * @return byte[]
+	 */
+	public static byte[] deriveKey(byte[] password, byte[] salt, int iterationCount, int dkLen)
+	{
+		MessageDigest sha256;
+		
+		try
+		{
+			sha256 = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+		
+		// HMAC keys longer than the block length are hashed first
+		byte[] key = password.length > BLOCK_LENGTH ? sha256.digest(password) : password;
+		
+		byte[] innerPad = new byte[BLOCK_LENGTH];
+		byte[] outerPad = new byte[BLOCK_LENGTH];
+		
+		for(int i=0; i<BLOCK_LENGTH; i++)
+		{
+			byte k = i < key.length ? key[i] : 0;
+			innerPad[i] = (byte) (k ^ 0x36);
+			outerPad[i] = (byte) (k ^ 0x5c);
+		}
+		
+		int[] w = new int[64];
+		int[] innerState = new int[8];
+		int[] outerState = new int[8];
+		
+		System.arraycopy(IV, 0, innerState, 0, 8);
+		System.arraycopy(IV, 0, outerState, 0, 8);
+		loadBlock(w, innerPad);
+		compress(innerState, w, innerState);
+		loadBlock(w, outerPad);
+		compress(outerState, w, outerState);
+		
+		int blocks = (dkLen + HASH_LENGTH - 1) / HASH_LENGTH;
+		byte[] derivedKey = new byte[dkLen];
+		
+		int[] u = new int[8];
+		int[] t = new int[8];
+		
+		for(int block=1; block<=blocks; block++)
+		{
+			// U1 = HMAC(P, S || INT(block)). the salt has arbitrary length, so the first iteration uses MessageDigest
+			sha256.reset();
+			sha256.update(innerPad);
+			sha256.update(salt);
+			sha256.update(new byte[] {(byte) (block >>> 24), (byte) (block >>> 16), (byte) (block >>> 8), (byte) block});
+			byte[] inner = sha256.digest();
+			
+			sha256.update(outerPad);
+			sha256.update(inner);
+			byte[] first = sha256.digest();
+			
+			for(int i=0; i<8; i++)
+			{
+				u[i] = ((first[i * 4] & 0xff) << 24) | ((first[i * 4 + 1] & 0xff) << 16) | ((first[i * 4 + 2] & 0xff) << 8) | (first[i * 4 + 3] & 0xff);
+				t[i] = u[i];
+			}
+			
+			// U2..Uc: every HMAC message is a single 32 byte hash, which fits into one padded block
+			for(int iteration=1; iteration<iterationCount; iteration++)
+			{
+				loadHash(w, u);
+				compress(innerState, w, u);
+				loadHash(w, u);
+				compress(outerState, w, u);
+				
+				for(int i=0; i<8; i++)
+					t[i] ^= u[i];
+			}
+			
+			int offset = (block - 1) * HASH_LENGTH;
+			for(int i=0; i<8 && offset + i * 4 < dkLen; i++)
+			{
+				for(int b=0; b<4 && offset + i * 4 + b < dkLen; b++)
+					derivedKey[offset + i * 4 + b] = (byte) (t[i] >>> (24 - b * 8));
+			}
+		}
+		
+		return derivedKey;
+	}
+	
+	private static void loadBlock(int[] w, byte[] block)
+	{
+		for(int i=0; i<16; i++)
+			w[i] = ((block[i * 4] & 0xff) << 24) | ((block[i * 4 + 1] & 0xff) << 16) | ((block[i * 4 + 2] & 0xff) << 8) | (block[i * 4 + 3] & 0xff);
+	}
+	
+	/**
+	 * loads a 32 byte hash plus SHA-256 padding for a message of one pad block and one hash
+	 */
+	private static void loadHash(int[] w, int[] hash)
+	{
+		System.arraycopy(hash, 0, w, 0, 8);
+		w[8] = 0x80000000;
+		w[9] = 0;
+		w[10] = 0;
+		w[11] = 0;
+		w[12] = 0;
+		w[13] = 0;
+		w[14] = 0;
+		w[15] = ITERATION_MESSAGE_BITS;
+	}
+	
+	/**
+	 * SHA-256 block compression. Reads the message block from w[0..15], uses w[16..63] as
+	 * scratch space and writes state + compress(state, block) to out. state and out may be the same array.
+	 */
+	private static void compress(int[] state, int[] w, int[] out)
+	{
+		for(int i=16; i<64; i++)
+		{
+			int s0 = Integer.rotateRight(w[i - 15], 7) ^ Integer.rotateRight(w[i - 15], 18) ^ (w[i - 15] >>> 3);
+			int s1 = Integer.rotateRight(w[i - 2], 17) ^ Integer.rotateRight(w[i - 2], 19) ^ (w[i - 2] >>> 10);
+			w[i] = w[i - 16] + s0 + w[i - 7] + s1;
+		}
+		
+		int a = state[0];
+		int b = state[1];
+		int c = state[2];
+		int d = state[3];
+		int e = state[4];
+		int f = state[5];
+		int g = state[6];
+		int h = state[7];
+		
+		for(int i=0; i<64; i++)
+		{
+			int t1 = h + (Integer.rotateRight(e, 6) ^ Integer.rotateRight(e, 11) ^ Integer.rotateRight(e, 25)) + ((e & f) ^ (~e & g)) + K[i] + w[i];
+			int t2 = (Integer.rotateRight(a, 2) ^ Integer.rotateRight(a, 13) ^ Integer.rotateRight(a, 22)) + ((a & b) ^ (a & c) ^ (b & c));
+			
+			h = g;
+			g = f;
+			f = e;
+			e = d + t1;
+			d = c;
+			c = b;
+			b = a;
+			a = t1 + t2;
+		}
+		
+		out[0] = state[0] + a;
+		out[1] = state[1] + b;
+		out[2] = state[2] + c;
+		out[3] = state[3] + d;
+		out[4] = state[4] + e;
+		out[5] = state[5] + f;
+		out[6] = state[6] + g;
+		out[7] = state[7] + h;
+	}
+}
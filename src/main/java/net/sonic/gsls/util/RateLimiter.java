@@ -0,0 +1,80 @@
+package net.sonic.gsls.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket rate limiter with one bucket per key (e.g. per client address).
+ *
+ * Each bucket is a single AtomicLong holding the time at which the bucket will be full again
+ * (the theoretical arrival time of the generic cell rate algorithm). A request is admitted if
+ * that time is no further in the future than the burst allows, and admitting it moves the time
+ * forward by one token. Buckets are updated with compare-and-set only, so concurrent requests
+ * never block each other. Buckets that have been full for longer than the idle timeout carry no
+ * state and are removed by evictIdle().
+ *
+ * @version 1
+ */
+public class RateLimiter
+{
+	private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<String, AtomicLong>();
+	
+	private final long interval;	// nanoseconds per token
+	private final long tolerance;	// nanoseconds the bucket time may run ahead of the clock
+	
+	/**
+	 * @param rate tokens per second
+	 * @param burst bucket size
+	 */
+	public RateLimiter(double rate, int burst)
+	{
+		this.interval = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+		this.tolerance = this.interval * (Math.max(1, burst) - 1);
+	}
+	
+	/**
+	 * takes a token from the bucket of the given key
+	 * 
+	 * @param key
+	 * @return 0 if the request is admitted, otherwise the nanoseconds until the next token is available
+	 */
+	public long acquire(String key)
+	{
+		long now = System.nanoTime();
+		
+		AtomicLong bucket = buckets.get(key);
+		if(bucket == null)
+			bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+		
+		while(true)
+		{
+			long current = bucket.get();
+			long base = current - now > 0 ? current : now;
+			
+			if(base - now > tolerance)
+				return base - now - tolerance;
+			
+			if(bucket.compareAndSet(current, base + interval))
+				return 0;
+		}
+	}
+	
+	/**
+	 * removes all buckets that have been full for at least the given time
+	 * 
+	 * @param idleTimeout in milliseconds
+	 */
+	public void evictIdle(long idleTimeout)
+	{
+		long now = System.nanoTime();
+		long idle = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+		
+		buckets.values().removeIf(bucket -> now - bucket.get() > idle);
+	}
+	
+	public int size()
+	{
+		return buckets.size();
+	}
+}
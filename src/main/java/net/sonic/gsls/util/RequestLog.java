@@ -0,0 +1,265 @@
+package net.sonic.gsls.util;
+
+import net.sonic.gsls.config.Config;
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Structured key/value logging of REST requests. Using singleton pattern.
+ *
+ * In "sync" mode (default) every event is written on the request thread and contains the full
+ * JWT. In "async" mode events are handed to a bounded queue and written by a background thread,
+ * JWTs are logged as a SHA-256 digest only and success events are sampled. Errors are never
+ * sampled, but are dropped like all other events if the queue is full.
+ *
+ * @version 1
+ */
+public class RequestLog
+{
+	public static final String MODE_SYNC = "sync";
+	public static final String MODE_ASYNC = "async";
+	
+	private static final Logger LOGGER = LoggerFactory.getLogger("net.sonic.gsls.requests");
+	
+	private static RequestLog instance = null;
+	
+	private final boolean async;
+	private final double sampleRate;
+	private final BlockingQueue<Event> queue;
+	private final Counter dropped;
+	
+	private RequestLog(String mode, double sampleRate, int queueSize)
+	{
+		this.async = MODE_ASYNC.equals(mode);
+		this.sampleRate = sampleRate;
+		this.queue = async ? new ArrayBlockingQueue<Event>(queueSize) : null;
+		this.dropped = Metrics.getInstance().counter("gsls_request_log_dropped_total", "request log events dropped because the queue was full");
+		
+		if(async)
+		{
+			Thread writer = new Thread(this::write, "request-log");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+	
+	public static synchronized RequestLog getInstance()
+	{
+		if(instance == null)
+		{
+			Config config = Config.getInstance();
+			instance = new RequestLog(config.getRequestLogMode(), config.getRequestLogSampleRate(), config.getRequestLogQueueSize());
+		}
+		return instance;
+	}
+	
+	/**
+	 * logs a request or a successful processing step. Sampled in async mode
+	 *
+	 * @param event e.g. "received", "verified", "written"
+	 * @param method HTTP method
+	 * @param globalID
+	 * @param jwt may be null
+	 */
+	public void info(String event, String method, String globalID, String jwt)
+	{
+		if(async && sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate)
+			return;
+		
+		log(new Event(false, event, method, globalID, 0, null, null, jwt));
+	}
+	
+	/**
+	 * logs a failed request
+	 *
+	 * @param method HTTP method
+	 * @param globalID
+	 * @param status HTTP status of the response
+	 * @param reason
+	 * @param jwt may be null
+	 * @param e may be null
+	 */
+	public void error(String method, String globalID, int status, String reason, String jwt, Exception e)
+	{
+		log(new Event(true, "error", method, globalID, status, reason, e != null ? e.getMessage() : null, jwt));
+	}
+	
+	private void log(Event event)
+	{
+		if(!async)
+		{
+			event.write(false);
+		}
+		else if(!queue.offer(event))
+		{
+			dropped.increment();
+		}
+	}
+	
+	private void write()
+	{
+		while(true)
+		{
+			try
+			{
+				queue.take().write(true);
+			}
+			catch (InterruptedException e)
+			{
+				return;
+			}
+			catch (RuntimeException e)
+			{
+				// never let a broken event stop the writer
+			}
+		}
+	}
+	
+	/**
+	 * returns the first 16 hex characters of the SHA-256 digest
+	 *
+	 * @param value
+	 * @return String
+	 */
+	public static String digest(String value)
+	{
+		try
+		{
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			
+			StringBuilder hex = new StringBuilder(16);
+			for(int i=0; i<8; i++)
+				hex.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+			
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			return "unavailable";
+		}
+	}
+	
+	private static class Event
+	{
+		private final boolean error;
+		private final String event;
+		private final String method;
+		private final String globalID;
+		private final int status;
+		private final String reason;
+		private final String exception;
+		private final String jwt;
+		
+		private Event(boolean error, String event, String method, String globalID, int status, String reason, String exception, String jwt)
+		{
+			this.error = error;
+			this.event = event;
+			this.method = method;
+			this.globalID = globalID;
+			this.status = status;
+			this.reason = reason;
+			this.exception = exception;
+			this.jwt = jwt;
+		}
+		
+		private void write(boolean digestOnly)
+		{
+			if(error ? !LOGGER.isErrorEnabled() : !LOGGER.isInfoEnabled())
+				return;
+			
+			StringBuilder line = new StringBuilder(128);
+			
+			append(line, "event", event);
+			append(line, "method", method);
+			append(line, "gid", globalID);
+			if(status != 0)
+				append(line, "status", Integer.toString(status));
+			append(line, "reason", reason);
+			append(line, "exception", exception);
+			
+			if(jwt != null)
+			{
+				if(digestOnly)
+				{
+					append(line, "jwt_sha256", digest(jwt));
+					append(line, "jwt_length", Integer.toString(jwt.length()));
+				}
+				else
+				{
+					append(line, "jwt", jwt);
+				}
+			}
+			
+			if(error)
+				LOGGER.error(line.toString());
+			else
+				LOGGER.info(line.toString());
+		}
+		
+		private static void append(StringBuilder line, String key, String value)
+		{
+			if(value == null)
+				return;
+			
+			if(line.length() > 0)
+				line.append(' ');
+			
+			line.append(key).append('=');
+			
+			if(!needsQuotes(value))
+			{
+				line.append(value);
+				return;
+			}
+			
+			// values come from the request, control characters must not start a new log line
+			line.append('"');
+			
+			for(int i=0; i<value.length(); i++)
+			{
+				char c = value.charAt(i);
+				
+				if(c == '\\' || c == '"')
+					line.append('\\').append(c);
+				else if(c == '\n')
+					line.append("\\n");
+				else if(c == '\r')
+					line.append("\\r");
+				else if(c == '\t')
+					line.append("\\t");
+				else if(Character.isISOControl(c) || c == '\u2028' || c == '\u2029')
+					line.append(String.format("\\u%04x", (int) c));
+				else
+					line.append(c);
+			}
+			
+			line.append('"');
+		}
+		
+		private static boolean needsQuotes(String value)
+		{
+			if(value.isEmpty())
+				return true;
+			
+			for(int i=0; i<value.length(); i++)
+			{
+				char c = value.charAt(i);
+				
+				if(c == ' ' || c == '"' || c == '=' || c == '\\' || Character.isISOControl(c) || c == '\u2028' || c == '\u2029')
+					return true;
+			}
+			
+			return false;
+		}
+	}
+}
@@ -0,0 +1,442 @@
+package net.sonic.gsls.util;
+
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Cache on disk that survives restarts, made of memory-mapped append-only segment files.
+ *
+ * Entries are appended to the newest segment, removals are appended as tombstones. On the heap
+ * there is only an index from the 64 bit hash of the key to the segment and offset of the
+ * entry. When the cache is opened, the segments are replayed in order to rebuild the index. A
+ * CRC per entry detects entries that were only partly written when the process stopped, the
+ * replay of a segment ends there. The number of segments is bounded. When another segment is
+ * needed, the oldest one is deleted. If at most a quarter of it is still in use, its live
+ * entries are first copied into the new segment (compaction), otherwise they are dropped.
+ *
+ * @version 1
+ */
+public class SegmentCache
+{
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentCache.class);
+	
+	private static final String	PREFIX		= "segment-";
+	private static final String	SUFFIX		= ".dat";
+	
+	// key length, value length (-1 for a tombstone), CRC32 of key and value
+	private static final int	HEADER_SIZE	= 12;
+	
+	private final File directory;
+	private final int segmentSize;
+	private final int maxSegments;
+	
+	// segment id -> segment, oldest first
+	private final TreeMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+	private Segment active = null;
+	
+	// key hash -> segment id (upper 32 bits) and offset (lower 32 bits)
+	private final ConcurrentHashMap<Long, Long> index = new ConcurrentHashMap<Long, Long>();
+	
+	// deleting a segment must not overlap with reads from it
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter compacted;
+	private final Counter evicted;
+	
+	private static class Segment
+	{
+		private final int id;
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private long live = 0;
+		
+		private Segment(int id, File file, int size) throws IOException
+		{
+			this.id = id;
+			this.file = file;
+			
+			try(RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel())
+			{
+				// the mapping stays valid after the channel is closed
+				this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, raf.length()));
+			}
+		}
+	}
+	
+	/**
+	 * opens the cache and loads the entries of the existing segments
+	 *
+	 * @param name cache label of the metrics
+	 * @param directory directory of the segment files
+	 * @param capacity maximum size in bytes on disk
+	 * @param segmentSize size of a segment file in bytes. Entries larger than half a segment are not cached
+	 * @throws IOException if the directory cannot be created or a segment cannot be mapped
+	 */
+	public SegmentCache(String name, File directory, long capacity, int segmentSize) throws IOException
+	{
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.maxSegments = (int) Math.max(2, capacity / segmentSize);
+		
+		this.hits = Metrics.getInstance().counter("gsls_disk_cache_requests_total", "disk cache lookups", "cache", name, "result", "hit");
+		this.misses = Metrics.getInstance().counter("gsls_disk_cache_requests_total", "disk cache lookups", "cache", name, "result", "miss");
+		this.compacted = Metrics.getInstance().counter("gsls_disk_cache_segments_reclaimed_total", "segments deleted to bound the disk cache", "cache", name, "result", "compacted");
+		this.evicted = Metrics.getInstance().counter("gsls_disk_cache_segments_reclaimed_total", "segments deleted to bound the disk cache", "cache", name, "result", "evicted");
+		
+		if(!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("cannot create cache directory " + directory);
+		
+		load();
+		
+		Metrics.getInstance().gauge("gsls_disk_cache_entries", "entries held by a disk cache", () -> index.size(), "cache", name);
+		Metrics.getInstance().gauge("gsls_disk_cache_segments", "segment files of a disk cache", () -> getSegmentCount(), "cache", name);
+	}
+	
+	private void load() throws IOException
+	{
+		File[] files = directory.listFiles((dir, file) -> file.startsWith(PREFIX) && file.endsWith(SUFFIX));
+		TreeMap<Integer, File> ordered = new TreeMap<Integer, File>();
+		
+		for(File file : files)
+		{
+			try
+			{
+				ordered.put(Integer.parseInt(file.getName().substring(PREFIX.length(), file.getName().length() - SUFFIX.length())), file);
+			}
+			catch (NumberFormatException e)
+			{
+				// not a segment
+			}
+		}
+		
+		// the cache was made smaller since the segments were written
+		while(ordered.size() > maxSegments)
+			ordered.pollFirstEntry().getValue().delete();
+		
+		for(Map.Entry<Integer, File> entry : ordered.entrySet())
+		{
+			Segment segment = new Segment(entry.getKey(), entry.getValue(), segmentSize);
+			segments.put(segment.id, segment);
+			replay(segment);
+			active = segment;
+		}
+		
+		LOGGER.info("loaded " + index.size() + " entries from " + segments.size() + " cache segments in " + directory);
+	}
+	
+	private void replay(Segment segment)
+	{
+		ByteBuffer buffer = segment.buffer;
+		CRC32 crc = new CRC32();
+		
+		while(buffer.remaining() >= HEADER_SIZE)
+		{
+			int offset = buffer.position();
+			int keyLength = buffer.getInt();
+			int valueLength = buffer.getInt();
+			long checksum = buffer.getInt() & 0xffffffffL;
+			
+			if(keyLength <= 0 || valueLength < -1 || keyLength + Math.max(0, valueLength) > buffer.remaining())
+			{
+				buffer.position(offset);
+				break;
+			}
+			
+			byte[] key = new byte[keyLength];
+			byte[] value = new byte[Math.max(0, valueLength)];
+			buffer.get(key);
+			buffer.get(value);
+			
+			crc.reset();
+			crc.update(key);
+			crc.update(value);
+			
+			if(crc.getValue() != checksum)
+			{
+				LOGGER.warn("cache segment " + segment.file + " is truncated at offset " + offset);
+				buffer.position(offset);
+				break;
+			}
+			
+			if(valueLength < 0)
+				release(index.remove(hash(key)));
+			else
+				index(hash(key), segment, offset, HEADER_SIZE + keyLength + valueLength);
+		}
+	}
+	
+	/**
+	 * @param key
+	 * @return a copy of the value, or null if the key is not cached
+	 */
+	public byte[] get(String key)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		
+		lock.readLock().lock();
+		
+		try
+		{
+			Long location = index.get(hash(keyBytes));
+			Segment segment = location == null ? null : segments.get((int) (location >>> 32));
+			
+			if(segment != null)
+			{
+				ByteBuffer buffer = segment.buffer.duplicate();
+				buffer.position((int) (long) location);
+				
+				int keyLength = buffer.getInt();
+				int valueLength = buffer.getInt();
+				buffer.getInt();
+				byte[] storedKey = new byte[keyLength];
+				buffer.get(storedKey);
+				
+				if(Arrays.equals(keyBytes, storedKey))
+				{
+					byte[] value = new byte[valueLength];
+					buffer.get(value);
+					
+					hits.increment();
+					return value;
+				}
+			}
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		
+		misses.increment();
+		return null;
+	}
+	
+	/**
+	 * @param key
+	 * @param value
+	 * @return false if the entry is larger than half a segment or could not be written
+	 */
+	public boolean put(String key, byte[] value)
+	{
+		return append(key.getBytes(StandardCharsets.UTF_8), value);
+	}
+	
+	public void remove(String key)
+	{
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		
+		if(index.containsKey(hash(keyBytes)))
+			append(keyBytes, null);
+	}
+	
+	/**
+	 * @param value null for a tombstone
+	 */
+	private boolean append(byte[] key, byte[] value)
+	{
+		int size = HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+		
+		if(size > segmentSize / 2)
+			return false;
+		
+		lock.writeLock().lock();
+		
+		try
+		{
+			if(active == null || active.buffer.remaining() < size)
+				roll();
+			
+			write(key, value);
+			return true;
+		}
+		catch (IOException e)
+		{
+			LOGGER.warn("cannot create cache segment: " + e.getMessage());
+			return false;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	private void write(byte[] key, byte[] value)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(key);
+		
+		if(value != null)
+			crc.update(value);
+		
+		ByteBuffer buffer = active.buffer;
+		int offset = buffer.position();
+		
+		buffer.putInt(key.length);
+		buffer.putInt(value == null ? -1 : value.length);
+		buffer.putInt((int) crc.getValue());
+		buffer.put(key);
+		
+		if(value == null)
+		{
+			release(index.remove(hash(key)));
+		}
+		else
+		{
+			buffer.put(value);
+			index(hash(key), active, offset, HEADER_SIZE + key.length + value.length);
+		}
+	}
+	
+	private void index(long hash, Segment segment, int offset, int size)
+	{
+		release(index.put(hash, ((long) segment.id << 32) | offset));
+		segment.live += size;
+	}
+	
+	/**
+	 * subtracts a replaced or removed entry from the live bytes of its segment
+	 */
+	private void release(Long location)
+	{
+		if(location == null)
+			return;
+		
+		Segment segment = segments.get((int) (location >>> 32));
+		
+		if(segment != null)
+		{
+			ByteBuffer buffer = segment.buffer.duplicate();
+			buffer.position((int) (long) location);
+			segment.live -= HEADER_SIZE + buffer.getInt() + buffer.getInt();
+		}
+	}
+	
+	/**
+	 * starts a new segment. Deletes the oldest segment first if the cache is at its size limit
+	 */
+	private void roll() throws IOException
+	{
+		if(active != null)
+			active.buffer.force();
+		
+		List<byte[][]> carried = new ArrayList<byte[][]>();
+		
+		if(segments.size() >= maxSegments)
+		{
+			Segment oldest = segments.pollFirstEntry().getValue();
+			boolean compact = oldest.live <= segmentSize / 4;
+			Iterator<Map.Entry<Long, Long>> iterator = index.entrySet().iterator();
+			
+			while(iterator.hasNext())
+			{
+				Map.Entry<Long, Long> entry = iterator.next();
+				
+				if((int) (entry.getValue() >>> 32) != oldest.id)
+					continue;
+				
+				if(compact)
+				{
+					ByteBuffer buffer = oldest.buffer.duplicate();
+					buffer.position((int) (long) entry.getValue());
+					
+					byte[] key = new byte[buffer.getInt()];
+					byte[] value = new byte[buffer.getInt()];
+					buffer.getInt();
+					buffer.get(key);
+					buffer.get(value);
+					carried.add(new byte[][] {key, value});
+				}
+				
+				iterator.remove();
+			}
+			
+			// the mapping is released once the buffer is garbage collected
+			if(!oldest.file.delete())
+				LOGGER.warn("cannot delete cache segment " + oldest.file);
+			
+			(compact ? compacted : evicted).increment();
+		}
+		
+		int id = active == null ? 0 : active.id + 1;
+		active = new Segment(id, new File(directory, PREFIX + id + SUFFIX), segmentSize);
+		segments.put(id, active);
+		
+		// at most a quarter of a segment
+		for(byte[][] entry : carried)
+			write(entry[0], entry[1]);
+	}
+	
+	/**
+	 * writes the newest segment to disk. Older segments were written when they were completed
+	 */
+	public void flush()
+	{
+		lock.writeLock().lock();
+		
+		try
+		{
+			if(active != null)
+				active.buffer.force();
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+	
+	public int size()
+	{
+		return index.size();
+	}
+	
+	public int getSegmentCount()
+	{
+		lock.readLock().lock();
+		
+		try
+		{
+			return segments.size();
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+	}
+	
+	/**
+	 * 64 bit FNV-1a hash
+	 */
+	private static long hash(byte[] bytes)
+	{
+		long hash = 0xcbf29ce484222325L;
+		
+		for(byte b : bytes)
+		{
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		
+		return hash;
+	}
+}
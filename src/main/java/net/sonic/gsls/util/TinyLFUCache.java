@@ -0,0 +1,209 @@
+package net.sonic.gsls.util;
+
+import net.sonic.gsls.metrics.Counter;
+import net.sonic.gsls.metrics.Metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache with a frequency based admission policy (TinyLFU).
+ *
+ * Every lookup is recorded in a count-min sketch of 4 rows of 4 bit counters. When the cache is
+ * full, a new key is only admitted if it was requested more often than the least recently used
+ * entry it would evict. Keys requested once, e.g. by a crawler scanning many GlobalIDs, therefore
+ * cannot flush the frequently requested entries. After 10 * capacity recorded lookups all
+ * counters are halved, so the sketch follows changes in popularity.
+ *
+ * @version 1
+ */
+public class TinyLFUCache<K, V>
+{
+	private static final int	ROWS		= 4;
+	private static final int	MAX_COUNT	= 15;
+	private static final int[]	SEEDS		= {0x97cb3127, 0xb15e8f3b, 0x5a7f1d2b, 0xc2b2ae35};
+	
+	private final int capacity;
+	
+	// access ordered, so the eldest entry is the eviction victim
+	private final LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+	
+	// count-min sketch. two 4 bit counters per byte
+	private final byte[][] sketch;
+	private final int mask;
+	private final int sampleSize;
+	private int samples = 0;
+	
+	private long hits = 0;
+	private long lookups = 0;
+	
+	private final Counter admitted;
+	private final Counter rejected;
+	
+	/**
+	 * @param name cache label of the metrics
+	 * @param capacity maximum number of entries
+	 */
+	public TinyLFUCache(String name, int capacity)
+	{
+		this.capacity = Math.max(1, capacity);
+		this.sampleSize = 10 * this.capacity;
+		
+		// 16 counters per entry and row keep collisions rare. 32 bytes per entry in total
+		int width = 16;
+		while(width < 16 * this.capacity)
+			width <<= 1;
+		
+		this.mask = width - 1;
+		this.sketch = new byte[ROWS][width / 2];
+		
+		this.admitted = Metrics.getInstance().counter("gsls_cache_admissions_total", "new entries offered to a full cache", "cache", name, "result", "admitted");
+		this.rejected = Metrics.getInstance().counter("gsls_cache_admissions_total", "new entries offered to a full cache", "cache", name, "result", "rejected");
+		
+		Metrics.getInstance().gauge("gsls_cache_hit_ratio", "share of lookups answered by a cache", () -> getHitRatio(), "cache", name);
+	}
+	
+	/**
+	 * looks up a key and records the request in the frequency sketch
+	 *
+	 * @param key
+	 * @return the value, or null if the key is not cached
+	 */
+	public synchronized V get(K key)
+	{
+		record(key);
+		
+		V value = entries.get(key);
+		
+		lookups++;
+		if(value != null)
+			hits++;
+		
+		return value;
+	}
+	
+	/**
+	 * looks up a key without recording a request in the frequency sketch or the hit ratio
+	 */
+	public synchronized V peek(K key)
+	{
+		return entries.get(key);
+	}
+	
+	/**
+	 * adds or replaces an entry. If the cache is full, a new key is only added if it is requested
+	 * more often than the least recently used entry
+	 *
+	 * @param key
+	 * @param value
+	 * @return true if the entry was stored
+	 */
+	public synchronized boolean put(K key, V value)
+	{
+		if(entries.containsKey(key) || entries.size() < capacity)
+		{
+			entries.put(key, value);
+			return true;
+		}
+		
+		Map.Entry<K, V> victim = entries.entrySet().iterator().next();
+		
+		if(frequency(key) <= frequency(victim.getKey()))
+		{
+			rejected.increment();
+			return false;
+		}
+		
+		entries.remove(victim.getKey());
+		entries.put(key, value);
+		admitted.increment();
+		
+		return true;
+	}
+	
+	public synchronized V remove(K key)
+	{
+		return entries.remove(key);
+	}
+	
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+	
+	/**
+	 * @return share of lookups that found an entry, 0 before the first lookup
+	 */
+	public synchronized double getHitRatio()
+	{
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+	
+	/**
+	 * @param key
+	 * @return estimated number of recent requests of the key, at most 15
+	 */
+	public synchronized int frequency(K key)
+	{
+		int hash = spread(key.hashCode());
+		int frequency = MAX_COUNT;
+		
+		for(int row=0; row<ROWS; row++)
+			frequency = Math.min(frequency, counter(row, index(hash, row)));
+		
+		return frequency;
+	}
+	
+	private void record(K key)
+	{
+		int hash = spread(key.hashCode());
+		
+		for(int row=0; row<ROWS; row++)
+		{
+			int index = index(hash, row);
+			int count = counter(row, index);
+			
+			if(count < MAX_COUNT)
+				setCounter(row, index, count + 1);
+		}
+		
+		if(++samples >= sampleSize)
+			age();
+	}
+	
+	/**
+	 * halves all counters
+	 */
+	private void age()
+	{
+		for(byte[] row : sketch)
+			for(int i=0; i<row.length; i++)
+				row[i] = (byte) ((row[i] >>> 1) & 0x77);
+		
+		samples /= 2;
+	}
+	
+	private int index(int hash, int row)
+	{
+		int h = (hash ^ SEEDS[row]) * SEEDS[row];
+		return (h ^ (h >>> 16)) & mask;
+	}
+	
+	private int counter(int row, int index)
+	{
+		int shift = (index & 1) << 2;
+		return (sketch[row][index >>> 1] >>> shift) & 0x0f;
+	}
+	
+	private void setCounter(int row, int index, int count)
+	{
+		int shift = (index & 1) << 2;
+		sketch[row][index >>> 1] = (byte) ((sketch[row][index >>> 1] & ~(0x0f << shift)) | (count << shift));
+	}
+	
+	private static int spread(int hash)
+	{
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+}
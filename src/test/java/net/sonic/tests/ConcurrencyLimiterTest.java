@@ -0,0 +1,121 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.ConcurrencyLimiter;
+
+public class ConcurrencyLimiterTest
+{
+	@Test
+	public void limitTest()
+	{
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 10, 2.0, 0.5);
+		
+		for(int i=0; i<4; i++)
+			assertTrue(limiter.tryAcquire());
+		
+		assertFalse(limiter.tryAcquire());
+		
+		// fast operations while the limit is used grow the limit
+		for(int round=0; round<10; round++)
+		{
+			while(limiter.tryAcquire());
+			
+			while(limiter.getInFlight() > 0)
+				limiter.release("get", 1000, false);
+		}
+		
+		assertTrue(limiter.getLimit() > 4);
+	}
+	
+	@Test
+	public void backoffTest() throws InterruptedException
+	{
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 2, 10, 2.0, 0.5);
+		
+		limiter.tryAcquire();
+		limiter.release("get", 1000, false);
+		assertEquals(8, limiter.getLimit());
+		
+		// latency above the tolerated multiple of the baseline
+		limiter.tryAcquire();
+		limiter.release("get", 5000, false);
+		assertEquals(4, limiter.getLimit());
+		
+		// dropped operations, started after the last decrease
+		Thread.sleep(1);
+		limiter.tryAcquire();
+		limiter.release("get", 1000, true);
+		assertEquals(2, limiter.getLimit());
+		
+		Thread.sleep(1);
+		limiter.tryAcquire();
+		limiter.release("get", 1000, true);
+		assertEquals(2, limiter.getLimit());
+	}
+	
+	@Test
+	public void windowTest() throws InterruptedException
+	{
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(8, 1, 10, 2.0, 0.5);
+		
+		limiter.tryAcquire();
+		limiter.release("get", 1000, false);
+		
+		// operations that were in flight together decrease the limit only once
+		for(int i=0; i<4; i++)
+			limiter.tryAcquire();
+		
+		for(int i=0; i<4; i++)
+			limiter.release("get", 1000000000L, true);
+		
+		assertEquals(4, limiter.getLimit());
+		
+		Thread.sleep(1);
+		limiter.tryAcquire();
+		limiter.release("get", 1000, true);
+		assertEquals(2, limiter.getLimit());
+	}
+	
+	@Test
+	public void cancelledTest()
+	{
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 10, 2.0, 0.5);
+		
+		limiter.tryAcquire();
+		limiter.release("get", 1000, false);
+		
+		// cancelled operations only free their slot
+		limiter.tryAcquire();
+		limiter.ignore();
+		
+		assertEquals(4, limiter.getLimit());
+		assertEquals(0, limiter.getInFlight());
+	}
+	
+	@Test
+	public void mixedWorkloadTest()
+	{
+		ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 10, 2.0, 0.5);
+		
+		// puts take 50 times as long as gets. Each operation type is judged against its own baseline
+		for(int round=0; round<10; round++)
+		{
+			while(limiter.tryAcquire());
+			
+			for(int i=0; limiter.getInFlight() > 0; i++)
+				limiter.release(i % 4 == 0 ? "put" : "get", i % 4 == 0 ? 50000000L : 1000000L, false);
+		}
+		
+		assertTrue(limiter.getLimit() > 4);
+		
+		// a get as slow as a put is still congestion
+		int limit = limiter.getLimit();
+		limiter.tryAcquire();
+		limiter.release("get", 50000000L, false);
+		
+		assertTrue(limiter.getLimit() < limit);
+	}
+}
@@ -0,0 +1,53 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.junit.Test;
+
+import net.sonic.gsls.model.GID;
+import net.sonic.gsls.util.PBKDF2;
+
+public class GIDTest
+{
+	private String publicKey = "-----BEGIN PUBLIC KEY-----MIICIjANBgkqhkiG9w0BAQEFAAOCAg8AMIICCgKCAgEAzMp0mukaLQl2Ya0RmZKtioXx3gifTe6Bu2UUsrOgwd/SHB3g438pcJBqF8pvPKKhx0hgp8MX1W3IGyqsNsIbFF2b4r9VrtDqUUd0WBCKsvBNcqxfqWkez2kVB+Q3hQkOjyocuO8I6v1rvkFNsio0E9XLPcLOiYJL3qHrbQFI+qtshfgjeK9taZbrEX6uY4VQ602fb8dHK9ieCV/W46RCTQS4+ac1+y1CAyH7gQ5TPMZ2vraeLR4kA1r8l/u3ZhB8b8biMt81K/WVcEf+8K4LAi/Tub1uDowKU2HNveG5ov055hvbvYv/9z1kEFGpTEMOzl0hiK4DGkvpugVO9nUfyy7VA85ZgkBpY4WoHGoZQbubyBsMwqpmT1pkUwAQTKnv6ME1YLLY81YjeshQz+YezT/gqH0uC3a+ZcQotFanNyTvQrtjxQSqeOA87K1RwfJvn9QS4Lz3MMt8eSK1/H+aFavDBARgzAGPgDRBTtjKSvdImZ1g5zd9pItzGV9ZcasvTY3/m6U5L9ByiiFEHLQJr9eKBb0OAoQVG9G5vYQ1f1CF7OtYQA2L0ygc4TwwLCjILBJDoqiOuYgq/wVzE1200G1tQ504hLdaUJIETCLxvDhyMI3TbywxLSyihYjC3Tge68X+rKPgZoY4ahTok0CszOzYf4lDsYmKAPIVDH5C5AECAwEAAQ==-----END PUBLIC KEY-----";
+	private String salt = "abb0afd289f102f3";
+	
+	@Test
+	public void PBKDF2MatchesJCETest() throws Exception
+	{
+		String[] passwords = {"", "password", publicKey};
+		int[] lengths = {16, 32, 40, 64};
+		
+		for(String password : passwords)
+		{
+			for(int length : lengths)
+			{
+				PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt.getBytes(StandardCharsets.UTF_8), 1000, length * 8);
+				byte[] expected = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+				
+				assertArrayEquals(expected, PBKDF2.deriveKey(password.getBytes(StandardCharsets.UTF_8), salt.getBytes(StandardCharsets.UTF_8), 1000, length));
+			}
+		}
+	}
+	
+	@Test
+	public void verifyGIDTest()
+	{
+		String gid = GID.createGID(publicKey, salt);
+		
+		assertEquals("qWgK-sDhFEXmjMBIgDE4qeP-jyuRp7gF1H_aDLKD66M", gid);
+		
+		// current encoding, legacy base36 encoding, cached result
+		assertTrue(GID.verifyGID(gid, publicKey, salt));
+		assertTrue(GID.verifyGID("4802C8DE6UZZ5BICQI830A8P8BW3YB5EBPGXWNRH1EP7H838V7", publicKey, salt));
+		assertTrue(GID.verifyGID(gid, publicKey, salt));
+		
+		assertFalse(GID.verifyGID(gid, publicKey, "0000000000000000"));
+		assertFalse(GID.verifyGID(GID.createGID(publicKey, "0000000000000000"), publicKey, salt));
+	}
+}
@@ -0,0 +1,73 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.HeavyHitters;
+
+public class HeavyHittersTest
+{
+	@Test
+	public void hotKeyTest()
+	{
+		HeavyHitters sketch = new HeavyHitters(10);
+		
+		// one hot key among many rare ones
+		for(int i=0; i<10000; i++)
+		{
+			sketch.offer("hot");
+			sketch.offer("cold" + i);
+		}
+		
+		assertEquals(10, sketch.size());
+		assertTrue(sketch.estimate("hot") > 9000);
+		assertTrue(sketch.estimate("hot") <= 10000);
+		assertTrue(sketch.estimate("cold9999") <= 1);
+		assertEquals(0, sketch.estimate("cold0"));
+	}
+	
+	@Test
+	public void replacementTest()
+	{
+		HeavyHitters sketch = new HeavyHitters(2);
+		
+		sketch.offer("a");
+		sketch.offer("a");
+		sketch.offer("b");
+		
+		// c replaces b, the key with the smallest count, and inherits its count as overestimation
+		sketch.offer("c");
+		assertEquals(2, sketch.size());
+		assertEquals(0, sketch.estimate("b"));
+		assertEquals(1, sketch.estimate("c"));
+		assertEquals(2, sketch.estimate("a"));
+		
+		// after another c, a has the smallest count and is replaced by d
+		sketch.offer("c");
+		sketch.offer("d");
+		assertEquals(2, sketch.size());
+		assertEquals(0, sketch.estimate("a"));
+		assertEquals(2, sketch.estimate("c"));
+		assertEquals(1, sketch.estimate("d"));
+	}
+	
+	@Test
+	public void decayTest()
+	{
+		HeavyHitters sketch = new HeavyHitters(10);
+		
+		for(int i=0; i<8; i++)
+			sketch.offer("a");
+		sketch.offer("b");
+		
+		sketch.decay();
+		assertEquals(4, sketch.estimate("a"));
+		assertEquals(1, sketch.size());
+		
+		sketch.decay();
+		sketch.decay();
+		sketch.decay();
+		assertEquals(0, sketch.size());
+	}
+}
@@ -0,0 +1,114 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.impl.Base64UrlCodec;
+import net.sonic.gsls.model.SocialRecord;
+import net.sonic.gsls.util.KeyPairManager;
+
+public class KeyPairManagerTest
+{
+	@Test
+	public void ecKeyTest() throws Exception
+	{
+		verifyRecordTest(KeyPairManager.ALGORITHM_EC, "ES256");
+	}
+	
+	@Test
+	public void ed25519KeyTest() throws Exception
+	{
+		verifyRecordTest(KeyPairManager.ALGORITHM_ED25519, "EdDSA");
+	}
+	
+	@Test
+	public void expiredEd25519Test() throws Exception
+	{
+		KeyPair keyPair = KeyPairManager.generateKeyPair(KeyPairManager.ALGORITHM_ED25519);
+		long now = System.currentTimeMillis() / 1000;
+		
+		JSONObject claims = new JSONObject();
+		claims.put("socialRecord", "e30");
+		claims.put("exp", now - 60);
+		
+		try
+		{
+			KeyPairManager.verifyJWT(KeyPairManager.signEdDSA(claims, keyPair.getPrivate()), keyPair.getPublic());
+			fail("expired EdDSA JWT accepted");
+		}
+		catch (ExpiredJwtException e)
+		{
+			// expected
+		}
+		
+		claims.put("exp", now + 60);
+		claims.put("nbf", now + 60);
+		
+		try
+		{
+			KeyPairManager.verifyJWT(KeyPairManager.signEdDSA(claims, keyPair.getPrivate()), keyPair.getPublic());
+			fail("EdDSA JWT accepted before its nbf");
+		}
+		catch (PrematureJwtException e)
+		{
+			// expected
+		}
+		
+		claims.remove("nbf");
+		KeyPairManager.verifyJWT(KeyPairManager.signEdDSA(claims, keyPair.getPrivate()), keyPair.getPublic());
+	}
+	
+	private void verifyRecordTest(String algorithm, String jwsAlgorithm) throws Exception
+	{
+		SocialRecordFixtures fixtures = new SocialRecordFixtures(2, algorithm);
+		JSONObject json = fixtures.createSocialRecord(0);
+		String jwt = fixtures.sign(json, 0);
+		
+		assertEquals(jwsAlgorithm, new JSONObject(Base64UrlCodec.BASE64URL.decodeToString(jwt.split("\\.")[0])).getString("alg"));
+		
+		// key encoding round trip and algorithm detection
+		String encodedKey = json.getString("personalPublicKey");
+		PublicKey publicKey = KeyPairManager.decodePublicKey(encodedKey);
+		
+		assertEquals(algorithm, KeyPairManager.getPublicKeyAlgorithm(encodedKey));
+		assertEquals(fixtures.getKeyPair(0).getPublic(), publicKey);
+		assertEquals(fixtures.getKeyPair(0).getPrivate(), KeyPairManager.decodePrivateKey(KeyPairManager.encodePrivateKey(fixtures.getKeyPair(0).getPrivate())));
+		
+		SocialRecord socialRecord = SocialRecord.createFromJSONObject(json);
+		socialRecord.validate();
+		socialRecord.verifyGlobalID();
+		
+		KeyPairManager.verifyJWT(jwt, publicKey);
+		
+		// signed with a different key
+		try
+		{
+			KeyPairManager.verifyJWT(fixtures.sign(json, 1), publicKey);
+			fail("signature of a different key accepted");
+		}
+		catch (SignatureException e)
+		{
+			// expected
+		}
+		
+		// signature algorithm does not match the key
+		try
+		{
+			KeyPairManager.verifyJWT(jwt, KeyPairManager.generateKeyPair(algorithm.equals(KeyPairManager.ALGORITHM_EC) ? KeyPairManager.ALGORITHM_ED25519 : KeyPairManager.ALGORITHM_EC).getPublic());
+			fail("signature algorithm " + jwsAlgorithm + " accepted for a different key type");
+		}
+		catch (UnsupportedJwtException e)
+		{
+			// expected
+		}
+	}
+}
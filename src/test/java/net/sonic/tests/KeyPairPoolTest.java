@@ -0,0 +1,44 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.security.KeyPair;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.KeyPairPool;
+
+public class KeyPairPoolTest
+{
+	@Test
+	public void timedTakeTest() throws Exception
+	{
+		KeyPairPool pool = new KeyPairPool(2, 1, 2);
+		
+		try
+		{
+			KeyPair first = pool.take(5, TimeUnit.MINUTES);
+			KeyPair second = pool.take(5, TimeUnit.MINUTES);
+			
+			assertNotNull(first);
+			assertNotNull(second);
+			assertNotEquals(first.getPublic(), second.getPublic());
+		}
+		finally
+		{
+			pool.stop();
+		}
+	}
+	
+	@Test
+	public void emptyPoolTest() throws Exception
+	{
+		// no workers, so the key pair is generated on the calling thread
+		KeyPairPool pool = new KeyPairPool(1, 1, 0);
+		
+		assertEquals(0, pool.available());
+		assertNotNull(pool.take());
+		assertNotNull(pool.take(0, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,251 @@
+package net.sonic.tests;
+
+import net.sonic.gsls.controller.DHTManager;
+import net.sonic.gsls.controller.GIDNotFoundException;
+import net.tomp2p.dht.PeerBuilderDHT;
+import net.tomp2p.p2p.PeerBuilder;
+import net.tomp2p.peers.Number160;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.json.JSONObject;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts overlays of N TomP2P peers on loopback ports in one JVM, preloads M signed
+ * SocialRecords and drives a GET/PUT mix against them through DHTManager. Reports throughput
+ * and latency percentiles per overlay size.
+ *
+ * Not a unit test. Run with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.sonic.tests.LocalOverlaySimulation -Dexec.args="-s 4,8,16"
+ */
+public class LocalOverlaySimulation
+{
+	private final int basePort;
+	private final int records;
+	private final int operations;
+	private final double getRatio;
+	private final int threads;
+	
+	private String[] gids;
+	private String[] jwts;
+	
+	public LocalOverlaySimulation(int basePort, int records, int operations, double getRatio, int threads)
+	{
+		this.basePort = basePort;
+		this.records = records;
+		this.operations = operations;
+		this.getRatio = getRatio;
+		this.threads = threads;
+	}
+	
+	public void createRecords(int keyPairs) throws Exception
+	{
+		System.out.println("creating " + records + " signed SocialRecords with " + keyPairs + " key pairs...");
+		
+		SocialRecordFixtures fixtures = new SocialRecordFixtures(keyPairs);
+		gids = new String[records];
+		jwts = new String[records];
+		
+		for(int i=0; i<records; i++)
+		{
+			JSONObject socialRecord = fixtures.createSocialRecord(i);
+			gids[i] = socialRecord.getString("globalID");
+			jwts[i] = fixtures.sign(socialRecord, i);
+		}
+	}
+	
+	public void run(int overlaySize) throws Exception
+	{
+		DHTManager[] peers = startOverlay(overlaySize);
+		
+		try
+		{
+			for(int i=0; i<records; i++)
+				peers[i % overlaySize].put(gids[i], jwts[i]);
+			
+			final long[][] getLatencies = new long[threads][];
+			final long[][] putLatencies = new long[threads][];
+			final AtomicLong notFound = new AtomicLong(0);
+			final AtomicLong errors = new AtomicLong(0);
+			final int operationsPerThread = operations / threads;
+			
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			Future<?>[] futures = new Future<?>[threads];
+			
+			long start = System.nanoTime();
+			
+			for(int t=0; t<threads; t++)
+			{
+				final int thread = t;
+				futures[t] = executor.submit(() ->
+				{
+					long[] gets = new long[operationsPerThread];
+					long[] puts = new long[operationsPerThread];
+					int getCount = 0;
+					int putCount = 0;
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					
+					for(int i=0; i<operationsPerThread; i++)
+					{
+						DHTManager peer = peers[random.nextInt(overlaySize)];
+						int record = random.nextInt(records);
+						long opStart = System.nanoTime();
+						
+						try
+						{
+							if(random.nextDouble() < getRatio)
+							{
+								peer.get(gids[record]);
+								gets[getCount++] = System.nanoTime() - opStart;
+							}
+							else
+							{
+								peer.put(gids[record], jwts[record]);
+								puts[putCount++] = System.nanoTime() - opStart;
+							}
+						}
+						catch (GIDNotFoundException e)
+						{
+							notFound.incrementAndGet();
+							gets[getCount++] = System.nanoTime() - opStart;
+						}
+						catch (Exception e)
+						{
+							errors.incrementAndGet();
+						}
+					}
+					
+					getLatencies[thread] = Arrays.copyOf(gets, getCount);
+					putLatencies[thread] = Arrays.copyOf(puts, putCount);
+				});
+			}
+			
+			for(Future<?> future : futures)
+				future.get();
+			
+			long duration = System.nanoTime() - start;
+			executor.shutdown();
+			
+			long[] gets = merge(getLatencies);
+			long[] puts = merge(putLatencies);
+			
+			System.out.println(String.format("peers=%d records=%d ops=%d threads=%d throughput=%.1f ops/s notFound=%d errors=%d",
+					overlaySize, records, gets.length + puts.length, threads,
+					(gets.length + puts.length) / (duration / 1e9), notFound.get(), errors.get()));
+			System.out.println("  GET " + percentiles(gets));
+			System.out.println("  PUT " + percentiles(puts));
+		}
+		finally
+		{
+			for(DHTManager peer : peers)
+				peer.shutdown();
+		}
+	}
+	
+	private DHTManager[] startOverlay(int overlaySize) throws Exception
+	{
+		Random random = new Random();
+		InetAddress loopback = InetAddress.getLoopbackAddress();
+		DHTManager[] peers = new DHTManager[overlaySize];
+		
+		for(int i=0; i<overlaySize; i++)
+		{
+			peers[i] = new DHTManager(new PeerBuilderDHT(new PeerBuilder(new Number160(random)).ports(basePort + i).start()).start());
+			if(i > 0)
+				peers[i].connectTo(loopback, basePort);
+		}
+		
+		// a second round fills the routing tables of the peers that joined early
+		for(int i=0; i<overlaySize; i++)
+			peers[i].connectTo(loopback, basePort + random.nextInt(overlaySize));
+		
+		return peers;
+	}
+	
+	private static long[] merge(long[][] latencies)
+	{
+		int length = 0;
+		for(long[] l : latencies)
+			length += l.length;
+		
+		long[] merged = new long[length];
+		int offset = 0;
+		for(long[] l : latencies)
+		{
+			System.arraycopy(l, 0, merged, offset, l.length);
+			offset += l.length;
+		}
+		
+		Arrays.sort(merged);
+		return merged;
+	}
+	
+	private static String percentiles(long[] sorted)
+	{
+		if(sorted.length == 0)
+			return "n=0";
+		
+		return String.format("n=%d p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms", sorted.length,
+				percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 0.999),
+				sorted[sorted.length - 1] / 1e6);
+	}
+	
+	private static double percentile(long[] sorted, double p)
+	{
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+	}
+	
+	public static void main(String[] args) throws Exception
+	{
+		Options options = new Options();
+		
+		options.addOption(Option.builder("s").longOpt("sizes").hasArg().desc("comma separated overlay sizes [4,8,16]").build());
+		options.addOption(Option.builder("r").longOpt("records").hasArg().desc("number of preloaded SocialRecords [1000]").build());
+		options.addOption(Option.builder("o").longOpt("operations").hasArg().desc("operations per overlay size [20000]").build());
+		options.addOption(Option.builder("g").longOpt("get_ratio").hasArg().desc("share of GET operations [0.9]").build());
+		options.addOption(Option.builder("t").longOpt("threads").hasArg().desc("client threads [8]").build());
+		options.addOption(Option.builder("k").longOpt("key_pairs").hasArg().desc("distinct key pairs used for signing [4]").build());
+		options.addOption(Option.builder("p").longOpt("base_port").hasArg().desc("first loopback port [4101]").build());
+		options.addOption(Option.builder("h").longOpt("help").desc("displays help on cli parameters").build());
+		
+		CommandLine cmd = new DefaultParser().parse(options, args);
+		
+		if(cmd.hasOption("h"))
+		{
+			new HelpFormatter().printHelp("LocalOverlaySimulation", options);
+			return;
+		}
+		
+		LocalOverlaySimulation simulation = new LocalOverlaySimulation(
+				Integer.parseInt(cmd.getOptionValue("p", "4101")),
+				Integer.parseInt(cmd.getOptionValue("r", "1000")),
+				Integer.parseInt(cmd.getOptionValue("o", "20000")),
+				Double.parseDouble(cmd.getOptionValue("g", "0.9")),
+				Integer.parseInt(cmd.getOptionValue("t", "8")));
+		
+		simulation.createRecords(Integer.parseInt(cmd.getOptionValue("k", "4")));
+		
+		for(String size : cmd.getOptionValue("s", "4,8,16").split(","))
+		{
+			simulation.run(Integer.parseInt(size.trim()));
+			
+			// give the sockets of the previous overlay time to close
+			TimeUnit.SECONDS.sleep(2);
+		}
+		
+		System.exit(0);
+	}
+}
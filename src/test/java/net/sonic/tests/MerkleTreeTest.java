@@ -0,0 +1,115 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import net.sonic.gsls.controller.MerkleTree;
+import net.tomp2p.peers.Number160;
+import net.tomp2p.peers.Number640;
+import net.tomp2p.storage.Data;
+
+public class MerkleTreeTest
+{
+	private static final int DEPTH = 4;
+	
+	private static Number640 key(String globalID)
+	{
+		return new Number640(Number160.createHash(globalID), Number160.ZERO, Number160.ZERO, Number160.ZERO);
+	}
+	
+	private static NavigableMap<Number640, Data> store(int records) throws IOException
+	{
+		NavigableMap<Number640, Data> store = new TreeMap<Number640, Data>();
+		
+		for(int i=0; i<records; i++)
+			store.put(key("gid" + i), new Data("record" + i));
+		
+		return store;
+	}
+	
+	@Test
+	public void matchingStoresTest() throws IOException
+	{
+		MerkleTree a = new MerkleTree(store(100), DEPTH);
+		MerkleTree b = new MerkleTree(store(100), DEPTH);
+		
+		assertEquals((2 << DEPTH) - 1, a.size());
+		
+		for(int node=0; node<a.size(); node++)
+			assertTrue(a.matches(node, b.getHash(node)));
+	}
+	
+	@Test
+	public void differingStoresTest() throws IOException
+	{
+		NavigableMap<Number640, Data> changed = store(100);
+		changed.put(key("gid42"), new Data("changed"));
+		
+		MerkleTree a = new MerkleTree(store(100), DEPTH);
+		MerkleTree b = new MerkleTree(changed, DEPTH);
+		
+		assertFalse(a.matches(0, b.getHash(0)));
+		
+		// descending into the differing children leads to the leaf holding the changed record
+		int node = 0;
+		
+		while(!a.isLeaf(node))
+			node = a.matches(2 * node + 1, b.getHash(2 * node + 1)) ? 2 * node + 2 : 2 * node + 1;
+		
+		Number160 locationKey = Number160.createHash("gid42");
+		Map<Number160, Number160> leaf = b.getLeaf(node);
+		
+		assertEquals(a.leafOf(locationKey) + (1 << DEPTH) - 1, node);
+		assertTrue(leaf.containsKey(locationKey));
+		assertNotEquals(a.getDataHash(locationKey), b.getDataHash(locationKey));
+	}
+	
+	@Test
+	public void missingRecordTest() throws IOException
+	{
+		NavigableMap<Number640, Data> missing = store(100);
+		missing.remove(key("gid7"));
+		
+		MerkleTree a = new MerkleTree(store(100), DEPTH);
+		MerkleTree b = new MerkleTree(missing, DEPTH);
+		
+		assertFalse(a.matches(0, b.getHash(0)));
+		assertNotNull(a.getDataHash(Number160.createHash("gid7")));
+		assertNull(b.getDataHash(Number160.createHash("gid7")));
+	}
+	
+	@Test
+	public void excludedKeysTest() throws IOException
+	{
+		NavigableMap<Number640, Data> changed = store(100);
+		changed.put(key("gid42"), new Data("changed"));
+		
+		// records outside the shared key range do not make the trees differ
+		Number160 excluded = Number160.createHash("gid42");
+		MerkleTree a = new MerkleTree(store(100), DEPTH, locationKey -> !locationKey.equals(excluded));
+		MerkleTree b = new MerkleTree(changed, DEPTH, locationKey -> !locationKey.equals(excluded));
+		
+		assertTrue(a.matches(0, b.getHash(0)));
+		assertNull(a.getDataHash(excluded));
+	}
+	
+	@Test
+	public void hotKeyReplicaTest() throws IOException
+	{
+		NavigableMap<Number640, Data> replicated = store(100);
+		replicated.put(key("gid1#1"), new Data("record1").ttlSeconds(60));
+		
+		// extra replicas of hot keys are stored with a TTL and not synchronized
+		MerkleTree a = new MerkleTree(store(100), DEPTH);
+		MerkleTree b = new MerkleTree(replicated, DEPTH);
+		
+		assertTrue(a.matches(0, b.getHash(0)));
+		assertNull(b.getDataHash(Number160.createHash("gid1#1")));
+	}
+}
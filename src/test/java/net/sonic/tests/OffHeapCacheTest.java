@@ -0,0 +1,49 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.OffHeapCache;
+
+public class OffHeapCacheTest
+{
+	@Test
+	public void putGetTest()
+	{
+		OffHeapCache cache = new OffHeapCache("test", 4096, 1024);
+		
+		assertTrue(cache.put("a", "record a".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(cache.put("b", "record b".getBytes(StandardCharsets.UTF_8)));
+		assertTrue(cache.put("a", "record a2".getBytes(StandardCharsets.UTF_8)));
+		
+		assertEquals("record a2", new String(cache.get("a"), StandardCharsets.UTF_8));
+		assertEquals("record b", new String(cache.get("b"), StandardCharsets.UTF_8));
+		assertNull(cache.get("c"));
+		
+		cache.remove("b");
+		assertNull(cache.get("b"));
+		
+		// larger than a slab
+		assertFalse(cache.put("d", new byte[2048]));
+	}
+	
+	@Test
+	public void slabEvictionTest()
+	{
+		// 4 slabs of 1 KB, 4 entries of about 250 bytes per slab
+		OffHeapCache cache = new OffHeapCache("test", 4096, 1024);
+		
+		for(int i=0; i<40; i++)
+			assertTrue(cache.put("key" + i, new byte[240]));
+		
+		assertEquals(4096, cache.getAllocated());
+		assertTrue(cache.size() <= 16);
+		
+		// the newest entries survive, the oldest slabs were evicted
+		assertNotNull(cache.get("key39"));
+		assertNull(cache.get("key0"));
+	}
+}
@@ -0,0 +1,41 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.RateLimiter;
+
+public class RateLimiterTest
+{
+	@Test
+	public void burstTest()
+	{
+		// one token per hour, so no tokens are refilled during the test
+		RateLimiter limiter = new RateLimiter(1.0 / 3600, 5);
+		
+		for(int i=0; i<5; i++)
+			assertEquals(0, limiter.acquire("a"));
+		
+		long wait = limiter.acquire("a");
+		assertTrue(wait > 0);
+		assertTrue(wait <= 3600L * 1000 * 1000 * 1000);
+		
+		// buckets are independent
+		assertEquals(0, limiter.acquire("b"));
+	}
+	
+	@Test
+	public void evictIdleTest() throws InterruptedException
+	{
+		RateLimiter limiter = new RateLimiter(1000, 1);
+		
+		assertEquals(0, limiter.acquire("a"));
+		assertEquals(1, limiter.size());
+		
+		Thread.sleep(20);
+		
+		limiter.evictIdle(10);
+		assertEquals(0, limiter.size());
+	}
+}
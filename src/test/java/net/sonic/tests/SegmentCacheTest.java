@@ -0,0 +1,77 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.sonic.gsls.util.SegmentCache;
+
+public class SegmentCacheTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	@Test
+	public void reloadTest() throws Exception
+	{
+		File directory = folder.newFolder();
+		SegmentCache cache = new SegmentCache("test", directory, 64 * 1024, 4096);
+		
+		cache.put("a", "record a".getBytes(StandardCharsets.UTF_8));
+		cache.put("b", "record b".getBytes(StandardCharsets.UTF_8));
+		cache.put("a", "record a2".getBytes(StandardCharsets.UTF_8));
+		cache.remove("b");
+		cache.flush();
+		
+		// a restarted node
+		SegmentCache reloaded = new SegmentCache("test", directory, 64 * 1024, 4096);
+		
+		assertEquals(1, reloaded.size());
+		assertEquals("record a2", new String(reloaded.get("a"), StandardCharsets.UTF_8));
+		assertNull(reloaded.get("b"));
+	}
+	
+	@Test
+	public void boundedTest() throws Exception
+	{
+		File directory = folder.newFolder();
+		
+		// 4 segments of 4 KB
+		SegmentCache cache = new SegmentCache("test", directory, 16 * 1024, 4096);
+		
+		// one entry that stays live while many others are written
+		cache.put("kept", new byte[100]);
+		
+		for(int i=0; i<200; i++)
+			cache.put("key" + i, new byte[500]);
+		
+		assertEquals(4, cache.getSegmentCount());
+		assertEquals(4, directory.listFiles().length);
+		assertNotNull(cache.get("key199"));
+		assertNull(cache.get("key0"));
+		
+		// larger than half a segment
+		assertFalse(cache.put("large", new byte[3000]));
+	}
+	
+	@Test
+	public void compactionTest() throws Exception
+	{
+		File directory = folder.newFolder();
+		SegmentCache cache = new SegmentCache("test", directory, 16 * 1024, 4096);
+		
+		// a few live entries, then many updates of a single key. the oldest segments are mostly dead
+		cache.put("kept", new byte[100]);
+		
+		for(int i=0; i<200; i++)
+			cache.put("updated", new byte[500]);
+		
+		assertNotNull(cache.get("kept"));
+		assertEquals(2, cache.size());
+	}
+}
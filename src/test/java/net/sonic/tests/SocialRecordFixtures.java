@@ -0,0 +1,141 @@
+package net.sonic.tests;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.Base64UrlCodec;
+import net.sonic.gsls.model.GID;
+import net.sonic.gsls.util.KeyPairManager;
+import net.sonic.gsls.util.KeyPairPool;
+import net.sonic.gsls.util.XSDDateTime;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates signed SocialRecord JWTs for simulations and benchmarks. Generating 4096 bit keys
+ * is slow, so records share a small set of key pairs and differ in their salt and GlobalID.
+ */
+public class SocialRecordFixtures
+{
+	private final KeyPair[] keyPairs;
+	private final String algorithm;
+	private final SecureRandom random = new SecureRandom();
+	
+	public SocialRecordFixtures(int keyPairCount) throws NoSuchAlgorithmException
+	{
+		this(keyPairCount, KeyPairManager.ALGORITHM);
+	}
+	
+	/**
+	 * @param keyPairCount
+	 * @param algorithm key algorithm: RSA, EC or Ed25519
+	 */
+	public SocialRecordFixtures(int keyPairCount, String algorithm) throws NoSuchAlgorithmException
+	{
+		this.algorithm = algorithm;
+		
+		keyPairs = new KeyPair[keyPairCount];
+		
+		if(!algorithm.equals(KeyPairManager.ALGORITHM))
+		{
+			for(int i=0; i<keyPairCount; i++)
+				keyPairs[i] = KeyPairManager.createKeyPair(algorithm);
+			return;
+		}
+		
+		// generate the RSA key pairs in parallel on all cores, waiting for the workers instead of generating on this thread
+		KeyPairPool pool = new KeyPairPool(keyPairCount, 1, Runtime.getRuntime().availableProcessors());
+		
+		try
+		{
+			for(int i=0; i<keyPairCount; i++)
+				keyPairs[i] = pool.take(10, TimeUnit.MINUTES);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		finally
+		{
+			pool.stop();
+		}
+	}
+	
+	public KeyPair getKeyPair(int index)
+	{
+		return keyPairs[index % keyPairs.length];
+	}
+	
+	/**
+	 * creates a SocialRecord JSON object with a valid GlobalID for the given key pair
+	 */
+	public JSONObject createSocialRecord(int index)
+	{
+		KeyPair keyPair = getKeyPair(index);
+		String personalPublicKey = KeyPairManager.encodePublicKey(keyPair.getPublic());
+		
+		byte[] saltBytes = new byte[8];
+		random.nextBytes(saltBytes);
+		StringBuilder salt = new StringBuilder();
+		for(byte b : saltBytes)
+			salt.append(String.format("%02x", b));
+		
+		JSONObject json = new JSONObject();
+		
+		json.put("@context", "http://sonic-project.net/");
+		json.put("@type", "socialrecord");
+		json.put("type", "user");
+		json.put("globalID", GID.createGID(personalPublicKey, salt.toString()));
+		json.put("platformGID", GID.createGID(personalPublicKey, "platform" + index));
+		json.put("displayName", "User " + index);
+		json.put("profileLocation", "http://localhost/sonic/" + index);
+		json.put("datetime", XSDDateTime.exportXSDDateTime(new Date()));
+		json.put("accountPublicKey", personalPublicKey);
+		json.put("personalPublicKey", personalPublicKey);
+		json.put("active", 1);
+		json.put("salt", salt.toString());
+		json.put("keyRevocationList", new JSONArray());
+		
+		return json;
+	}
+	
+	/**
+	 * signs a SocialRecord JSON object in the format expected by the REST interface
+	 */
+	public String sign(JSONObject socialRecord, int index)
+	{
+		String encoded = Base64UrlCodec.BASE64URL.encode(socialRecord.toString().getBytes(StandardCharsets.UTF_8));
+		
+		if(algorithm.equals(KeyPairManager.ALGORITHM_ED25519))
+		{
+			try
+			{
+				return KeyPairManager.signEdDSA(new JSONObject().put("socialRecord", encoded), getKeyPair(index).getPrivate());
+			}
+			catch (GeneralSecurityException e)
+			{
+				throw new IllegalStateException(e);
+			}
+		}
+		
+		return Jwts.builder()
+				.setHeaderParam("typ", "JWT")
+				.claim("socialRecord", encoded)
+				.signWith(algorithm.equals(KeyPairManager.ALGORITHM_EC) ? SignatureAlgorithm.ES256 : SignatureAlgorithm.RS512, getKeyPair(index).getPrivate())
+				.compact();
+	}
+	
+	public String createSignedSocialRecord(int index)
+	{
+		return sign(createSocialRecord(index), index);
+	}
+}
@@ -31,4 +31,24 @@ public class SocialRecordTest
 			fail("SocialRecordIntegrtiyException thrown: " + e.getMessage());
 		}
 	}
+	
+	@Test
+	public void verifiedJWTTest() throws SocialRecordIntegrityException
+	{
+		assertEquals("2016-01-13T10:58:54+01:00", SocialRecord.createFromVerifiedJWT(jwt).getDatetime());
+		
+		// signature of a different payload
+		String[] parts = jwt.split("\\.");
+		String tampered = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+		
+		try
+		{
+			SocialRecord.createFromVerifiedJWT(tampered);
+			fail("JWT with invalid signature accepted");
+		}
+		catch (SocialRecordIntegrityException e)
+		{
+			// expected
+		}
+	}
 }
\ No newline at end of file
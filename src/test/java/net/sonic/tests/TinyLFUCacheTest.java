@@ -0,0 +1,66 @@
+package net.sonic.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import net.sonic.gsls.util.TinyLFUCache;
+
+public class TinyLFUCacheTest
+{
+	@Test
+	public void scanResistanceTest()
+	{
+		TinyLFUCache<String, String> cache = new TinyLFUCache<String, String>("test", 100);
+		
+		// popular keys, requested several times
+		for(int round=0; round<3; round++)
+		{
+			for(int i=0; i<100; i++)
+			{
+				if(cache.get("popular" + i) == null)
+					cache.put("popular" + i, "record");
+			}
+		}
+		
+		// a crawler requesting each key once, while the popular keys are still requested
+		for(int i=0; i<10000; i++)
+		{
+			if(cache.get("scan" + i) == null)
+				cache.put("scan" + i, "record");
+			
+			if(cache.get("popular" + (i % 100)) == null)
+				cache.put("popular" + (i % 100), "record");
+		}
+		
+		int retained = 0;
+		for(int i=0; i<100; i++)
+			if(cache.peek("popular" + i) != null)
+				retained++;
+		
+		assertEquals(100, cache.size());
+		assertTrue(retained > 90);
+	}
+	
+	@Test
+	public void admissionTest()
+	{
+		TinyLFUCache<String, String> cache = new TinyLFUCache<String, String>("test", 1);
+		
+		assertTrue(cache.put("a", "1"));
+		
+		// not requested more often than the victim
+		assertFalse(cache.put("b", "2"));
+		assertEquals("1", cache.get("a"));
+		
+		cache.get("c");
+		cache.get("c");
+		cache.get("c");
+		assertTrue(cache.put("c", "3"));
+		assertNull(cache.peek("a"));
+		
+		// replacing an entry is always allowed
+		assertTrue(cache.put("c", "4"));
+		assertEquals("4", cache.peek("c"));
+	}
+}